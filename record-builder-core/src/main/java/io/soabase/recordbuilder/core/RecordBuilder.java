@@ -73,6 +73,23 @@ public @interface RecordBuilder {
          */
         String interfaceSuffix() default "Record";
 
+        /**
+         * Used by {@code RecordInterface}. If true, the generated record computes its hash code once, in the canonical
+         * constructor, and stores it in an additional int component named {@link #cachedHashCodeName()}. The generated
+         * {@code hashCode()}, {@code equals()} and {@code toString()} ignore that component's value (and
+         * {@code equals()} compares the cached hashes first). Useful for records with large collection or string
+         * components that are used as map keys. Note: records cannot have instance fields other than components, so the
+         * additional component is visible to the record's canonical constructor, its accessor and any generated
+         * builder. The value passed for it is always replaced with the computed hash.
+         */
+        boolean cacheHashCode() default false;
+
+        /**
+         * Used by {@code RecordInterface}. If {@link #cacheHashCode()} is true, this is the name of the component that
+         * holds the cached hash code.
+         */
+        String cachedHashCodeName() default "_hashCode";
+
         /**
          * The name to use for the copy builder
          */
@@ -205,6 +222,25 @@ public @interface RecordBuilder {
          */
         boolean useUnmodifiableCollections() default false;
 
+        /**
+         * Like {@link #useImmutableCollections()} but the shim methods use the persistent (structural-sharing)
+         * collections from {@code record-builder-runtime} (e.g. {@code PersistentList.copyOf(o)}). When combined with
+         * {@link #addSingleItemCollectionBuilders()}, adding an element to a collection in a copy builder is
+         * {@code O(log n)} instead of a full copy of the collection. Requires {@code record-builder-runtime} on the
+         * classpath of the code using the generated builders. Implies {@link #useImmutableCollections()}.
+         */
+        boolean usePersistentCollections() default false;
+
+        /**
+         * When {@link #useImmutableCollections()}, {@link #useUnmodifiableCollections()} or
+         * {@link #usePersistentCollections()} is enabled, the generated builder calls the shared shim methods and
+         * internal mutable collections of {@code CollectionShims} from {@code record-builder-runtime} instead of
+         * declaring private copies of them. This reduces the number of generated classes and methods when there are
+         * many builders. {@link #mutableListClassName()}, etc. are ignored. Requires {@code record-builder-runtime} on
+         * the classpath of the code using the generated builders.
+         */
+        boolean useRuntimeCollectionShims() default false;
+
         /**
          * Adds special handling for record components of type: {@link java.util.List}, {@link java.util.Set},
          * {@link java.util.Map} and {@link java.util.Collection}. When the record is built, any components of these
@@ -234,6 +270,61 @@ public @interface RecordBuilder {
          */
         boolean addFunctionalMethodsToWith() default false;
 
+        /**
+         * If greater than zero, records with at least this many components get compact withers: each {@code withXXX()}
+         * method in the nested "With" class delegates to a single shared helper that takes the component's position and
+         * new value. The generated code is then linear in the number of components instead of quadratic. The trade-off
+         * is that a primitive value is boxed on each call. The default, {@code 0}, always generates withers that call
+         * the record constructor directly.
+         */
+        int compactWithersThreshold() default 0;
+
+        /**
+         * When enabled, adds static "with" methods to the builder class, e.g.
+         * {@code MyRecordBuilder.withName(record, "new name")}. These return a new record instance with a new value for
+         * one component without requiring the record to implement the nested "With" interface and without allocating
+         * the {@link #fromMethodName()} wrapper.
+         */
+        boolean addStaticWithers() default false;
+
+        /**
+         * When enabled, adds a static {@code intern(record)} method and a {@code buildInterned()} method to the
+         * builder. Both return a canonical instance from a weak-value pool so that equal records share a single
+         * instance. Requires {@code record-builder-runtime} on the classpath of the code using the generated builders.
+         * Only use for records whose components are immutable.
+         */
+        boolean addInterning() default false;
+
+        /**
+         * If true, a nested {@link #hashedKeyClassName()} class is added to the builder along with a static
+         * {@code key(record)} method and a {@code buildKey()} method. The key wraps a record and the record's hash
+         * code, which is computed once when the key is created. The key's {@code equals()} compares hash codes before
+         * comparing records. Use it in place of the record as a {@code HashMap}/{@code ConcurrentHashMap} key when the
+         * record has large string or collection components.
+         */
+        boolean addHashedKey() default false;
+
+        /**
+         * If {@link #addHashedKey()} is true, this is the name of the nested key class
+         */
+        String hashedKeyClassName() default "Key";
+
+        /**
+         * If true, static {@code compare(a, b)}, {@code comparator()} and {@code sortKey(record, buffer)} methods are
+         * added to the builder. The comparator orders records by {@link #comparatorComponents()} (or, if empty, by
+         * every primitive or {@code Comparable} component in declaration order) without boxing or key extractor
+         * lambdas. Nulls sort first. {@code sortKey()} writes an unsigned-byte-comparable key for the leading
+         * primitive, {@code String} and enum comparator components. {@code sortKey()} is omitted if the first
+         * comparator component is not one of these.
+         */
+        boolean addComparator() default false;
+
+        /**
+         * If {@link #addComparator()} is true, the names of the components to order by, in order. If empty, every
+         * primitive or {@code Comparable} component is used in declaration order.
+         */
+        String[] comparatorComponents() default {};
+
         /**
          * If set, all builder setter methods will be prefixed with this string. Camel-casing will still be enforced, so
          * if this option is set to "set" a field named "myField" will get a corresponding setter named "setMyField".
@@ -328,6 +419,23 @@ public @interface RecordBuilder {
          */
         String stagedBuilderMethodSuffix() default "Stage";
 
+        /**
+         * The number of required components set by each stage of a staged builder. The default of {@code 1} generates
+         * one stage interface per component. Larger values group consecutive components into a single stage whose
+         * method takes all the group's components. For very wide records this reduces the number of generated stage
+         * interfaces accordingly. As grouped components are passed positionally, the stage interface and method are
+         * named for all the components of the group in order, joined with {@code And} - e.g. the group
+         * {@code first, last} is set via {@code FirstAndLastStage.firstAndLast(first, last)} - so that the order of the
+         * values is explicit at the call site.
+         */
+        int stagedBuilderGroupSize() default 1;
+
+        /**
+         * The staged builder method instantiates an internal private class that implements every stage. This is the
+         * name of that class.
+         */
+        String stagedBuilderClassName() default "_Staged";
+
         /**
          * If {@link #builderMode()} is `STAGED_REQUIRED_ONLY` or `STANDARD_AND_STAGED_REQUIRED_ONLY, this is the regex
          * pattern used to determine if an annotation name means "null-able"
@@ -367,6 +475,16 @@ public @interface RecordBuilder {
          * @return annotations
          */
         String[] inheritRecordAnnotations() default { "java.lang.SuppressWarnings" };
+
+        /**
+         * With {@link GenerationProfile#LEAN} the generated builder omits members that are rarely used in
+         * latency/footprint sensitive code: the builder's {@code toString()}, {@code hashCode()} and {@code equals()},
+         * the {@link #componentsMethodName()} stream method, the {@link #beanClassName()} interface, the
+         * {@link #fromMethodName()} method and its {@link #fromWithClassName()} class, the {@code With.with(Consumer)}
+         * method, the {@code Stream} adder of collection components and the {@code Stream}/{@code Iterable} adders of
+         * map components. This reduces the size of the generated classes and the metaspace they use.
+         */
+        GenerationProfile generationProfile() default GenerationProfile.FULL;
     }
 
     @Retention(RetentionPolicy.CLASS)
@@ -386,6 +504,10 @@ public @interface RecordBuilder {
         DISABLED, ENABLED, ENABLED_WITH_NULLABLE_ANNOTATION,
     }
 
+    enum GenerationProfile {
+        FULL, LEAN,
+    }
+
     /**
      * Apply to record components to specify a field initializer for the generated builder
      */
@@ -437,6 +559,22 @@ public @interface RecordBuilder {
          * @return true/false
          */
         boolean inheritAnnotations() default true;
+
+        /**
+         * Only applies to deconstructor methods. If true, the generated {@code from()} method collects components into
+         * a per-thread holder instance that is reused across calls and whose consumers are allocated once. Thus,
+         * deconstructing an instance allocates only the resulting record. Note: the record builder is not used by
+         * {@code from()} when this is enabled.
+         *
+         * @return true/false
+         */
+        boolean reuseComponentHolder() default false;
+
+        /**
+         * If {@link #reuseComponentHolder()} is true, the generated record contains an internal private class that
+         * holds the components. This is the name of that class.
+         */
+        String componentHolderClassName() default "_DeconstructorHolder";
     }
 
     @Retention(RetentionPolicy.CLASS)
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.generator;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Arguments for {@link RecordBuilderGenerator}
+ *
+ * @param outputDirectory
+ *            directory to write the generated builder sources to
+ * @param classpath
+ *            class path containing the records and their dependencies
+ * @param scan
+ *            jars or class directories - builders are generated for all records in all packages they contain. They are
+ *            added to the class path.
+ * @param classes
+ *            fully qualified names of individual (public) records to generate builders for
+ * @param processorOptions
+ *            annotation processor options (e.g. {@code useImmutableCollections=true}) - see
+ *            {@code RecordBuilder.Options}
+ * @param threads
+ *            number of batches to process in parallel
+ * @param batchSize
+ *            maximum number of classes/packages per batch. Each batch is one compiler invocation.
+ */
+public record GeneratorArguments(Path outputDirectory, List<Path> classpath, List<Path> scan, List<String> classes,
+        Map<String, String> processorOptions, int threads, int batchSize) {
+
+    public static final String USAGE = """
+            Usage: RecordBuilderGenerator --output <directory> [options] [record class names...]
+              --output <directory>       directory to write the generated sources to
+              --classpath <path>         class path containing the records and their dependencies
+              --scan <jar or directory>  generate builders for all records in the jar/directory (may be repeated)
+              --threads <n>              number of batches to process in parallel (default: available processors)
+              --batch-size <n>           maximum number of classes/packages per batch (default: 100)
+              -A<option>=<value>         RecordBuilder option (e.g. -AuseImmutableCollections=true)
+            """;
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    public GeneratorArguments {
+        Objects.requireNonNull(outputDirectory, "outputDirectory cannot be null");
+        classpath = List.copyOf(classpath);
+        scan = List.copyOf(scan);
+        classes = List.copyOf(classes);
+        processorOptions = Map.copyOf(processorOptions);
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+    }
+
+    /**
+     * Parse command line arguments. See {@link #USAGE}.
+     *
+     * @throws IllegalArgumentException
+     *             if the arguments are not valid
+     */
+    public static GeneratorArguments parse(String... args) {
+        Path outputDirectory = null;
+        List<Path> classpath = new ArrayList<>();
+        List<Path> scan = new ArrayList<>();
+        List<String> classes = new ArrayList<>();
+        Map<String, String> processorOptions = new LinkedHashMap<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+
+        for (int i = 0; i < args.length; ++i) {
+            String arg = args[i];
+            switch (arg) {
+            case "--output" -> outputDirectory = Path.of(value(args, ++i, arg));
+            case "--classpath", "-cp" -> Arrays.stream(value(args, ++i, arg).split(File.pathSeparator))
+                    .filter(path -> !path.isBlank()).map(Path::of).forEach(classpath::add);
+            case "--scan" -> scan.add(Path.of(value(args, ++i, arg)));
+            case "--threads" -> threads = intValue(args, ++i, arg);
+            case "--batch-size" -> batchSize = intValue(args, ++i, arg);
+            default -> {
+                if (arg.startsWith("-A")) {
+                    int equals = arg.indexOf('=');
+                    if (equals < 0) {
+                        processorOptions.put(arg.substring(2), "true");
+                    } else {
+                        processorOptions.put(arg.substring(2, equals), arg.substring(equals + 1));
+                    }
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    classes.add(arg);
+                }
+            }
+            }
+        }
+
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("--output is required");
+        }
+        if (scan.isEmpty() && classes.isEmpty()) {
+            throw new IllegalArgumentException("At least one --scan path or record class name is required");
+        }
+        return new GeneratorArguments(outputDirectory, classpath, scan, classes, processorOptions, threads, batchSize);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int intValue(String[] args, int index, String option) {
+        try {
+            return Integer.parseInt(value(args, index, option));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + args[index]);
+        }
+    }
+}
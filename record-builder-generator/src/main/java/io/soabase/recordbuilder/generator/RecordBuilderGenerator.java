@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.generator;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+import io.soabase.recordbuilder.processor.RecordBuilderProcessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates builders for already compiled records (e.g. records in third party jars) without compiling them. The
+ * records are read from class files by javac and the builders are generated by the standard
+ * {@link RecordBuilderProcessor} as if each record was listed in a {@code @RecordBuilder.Include}. The records are
+ * split into batches that are processed in parallel, each batch being a separate {@code -proc:only} compiler
+ * invocation. The generated sources can then be cached and added to downstream builds as regular sources.
+ */
+public class RecordBuilderGenerator {
+    private static final String BATCH_CLASS_NAME = "RecordBuilderGeneratorBatch";
+
+    private final GeneratorArguments arguments;
+
+    /**
+     * The result of a generation
+     *
+     * @param batches
+     *            the number of batches processed
+     * @param errors
+     *            any errors reported by the compiler or the processor
+     */
+    public record Result(int batches, List<String> errors) {
+        public Result {
+            errors = List.copyOf(errors);
+        }
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+    }
+
+    public static void main(String[] args) {
+        GeneratorArguments arguments;
+        try {
+            arguments = GeneratorArguments.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(GeneratorArguments.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Result result = new RecordBuilderGenerator(arguments).generate();
+        result.errors().forEach(System.err::println);
+        System.exit(result.isSuccess() ? 0 : 1);
+    }
+
+    public RecordBuilderGenerator(GeneratorArguments arguments) {
+        this.arguments = arguments;
+    }
+
+    public Result generate() {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return new Result(0, List.of("No system Java compiler is available. A JDK is required."));
+        }
+
+        List<String> items = new ArrayList<>();
+        arguments.classes().forEach(className -> items.add(className.replace('$', '.') + ".class"));
+        scanPackages().forEach(packageName -> items.add('"' + packageName + '"'));
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += arguments.batchSize()) {
+            batches.add(items.subList(i, Math.min(items.size(), i + arguments.batchSize())));
+        }
+
+        String classpath = classpath();
+        ExecutorService executorService = Executors
+                .newFixedThreadPool(Math.max(1, Math.min(arguments.threads(), batches.size())));
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < batches.size(); ++i) {
+                int index = i;
+                futures.add(executorService.submit(() -> processBatch(compiler, classpath, index, batches.get(index))));
+            }
+
+            List<String> errors = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                try {
+                    errors.addAll(future.get());
+                } catch (ExecutionException e) {
+                    errors.add(String.valueOf(e.getCause()));
+                }
+            }
+            return new Result(batches.size(), errors);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(batches.size(), List.of("Interrupted"));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private List<String> processBatch(JavaCompiler compiler, String classpath, int index, List<String> items) {
+        // classes are referenced via class literals, packages are strings. Classes are listed first (see generate()).
+        String classes = items.stream().filter(item -> item.endsWith(".class")).collect(Collectors.joining(", "));
+        String packages = items.stream().filter(item -> !item.endsWith(".class")).collect(Collectors.joining(", "));
+        String source = """
+                @%s(classes = {%s}, packages = {%s}, packagePattern = "*")
+                class %s {
+                }
+                """.formatted(RecordBuilder.Include.class.getCanonicalName(), classes, packages, BATCH_CLASS_NAME);
+
+        List<String> options = new ArrayList<>(List.of("-proc:only", "-classpath", classpath, "-s",
+                arguments.outputDirectory().toString(), "-d", arguments.outputDirectory().toString()));
+        arguments.processorOptions().forEach((name, value) -> options.add("-A" + name + "=" + value));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            Files.createDirectories(arguments.outputDirectory());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    List.of(new BatchSource(source)));
+            task.setProcessors(List.of(new RecordBuilderProcessor()));
+            task.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return diagnostics.getDiagnostics().stream().filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> "Batch " + index + ": " + diagnostic.getMessage(Locale.ROOT)).toList();
+    }
+
+    private String classpath() {
+        List<Path> paths = new ArrayList<>(arguments.classpath());
+        paths.addAll(arguments.scan());
+        // the synthetic @RecordBuilder.Include needs record-builder-core
+        try {
+            paths.add(Path.of(RecordBuilder.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Could not locate record-builder-core", e);
+        }
+        return paths.stream().map(Path::toString).distinct().collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private Set<String> scanPackages() {
+        Set<String> packages = new TreeSet<>();
+        for (Path path : arguments.scan()) {
+            classFileNames(path).stream().filter(name -> name.endsWith(".class"))
+                    .filter(name -> !name.startsWith("META-INF/") && !name.endsWith("module-info.class"))
+                    .map(name -> name.contains("/") ? name.substring(0, name.lastIndexOf('/')).replace('/', '.') : "")
+                    .filter(packageName -> !packageName.isEmpty()).forEach(packages::add);
+        }
+        return packages;
+    }
+
+    private static Collection<String> classFileNames(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    return files.filter(Files::isRegularFile)
+                            .map(file -> path.relativize(file).toString().replace(File.separatorChar, '/')).toList();
+                }
+            }
+            try (JarFile jarFile = new JarFile(path.toFile())) {
+                return jarFile.stream().map(entry -> entry.getName()).toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not scan: " + path, e);
+        }
+    }
+
+    private static class BatchSource extends SimpleJavaFileObject {
+        private final String source;
+
+        private BatchSource(String source) {
+            super(URI.create("string:///" + BATCH_CLASS_NAME + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
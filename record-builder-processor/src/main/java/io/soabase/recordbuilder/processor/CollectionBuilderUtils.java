@@ -23,16 +23,19 @@ import java.io.Serial;
 import java.util.*;
 import java.util.regex.Pattern;
 
+import static io.soabase.recordbuilder.processor.InternalRecordBuilderProcessor.capitalize;
 import static io.soabase.recordbuilder.processor.RecordBuilderProcessor.generatedRecordBuilderAnnotation;
 import static io.soabase.recordbuilder.processor.RecordBuilderProcessor.recordBuilderGeneratedAnnotation;
 import static io.soabase.recordbuilder.processor.RecordBuilderProcessor.suppressWarningsAnnotation;
 
 class CollectionBuilderUtils {
     private final boolean useImmutableCollections;
+    private final boolean usePersistentCollections;
     private final boolean useUnmodifiableCollections;
     private final boolean allowNullableCollections;
     private final boolean addSingleItemCollectionBuilders;
     private final boolean addClassRetainedGenerated;
+    private final boolean useRuntimeShims;
 
     private final boolean interpretNotNulls;
     private final Pattern notNullPattern;
@@ -94,16 +97,23 @@ class CollectionBuilderUtils {
     private static final ClassName mutableListTypeName = ClassName.get(mutableListType);
     private static final ClassName mutableMapTypeName = ClassName.get(mutableMapType);
     private static final ClassName mutableSetTypeName = ClassName.get(mutableSetType);
+    private static final String runtimePackage = "io.soabase.recordbuilder.runtime";
+    private static final ClassName persistentListTypeName = ClassName.get(runtimePackage, "PersistentList");
+    private static final ClassName persistentMapTypeName = ClassName.get(runtimePackage, "PersistentMap");
+    private static final ClassName persistentSetTypeName = ClassName.get(runtimePackage, "PersistentSet");
+    private static final ClassName collectionShimsTypeName = ClassName.get(runtimePackage, "CollectionShims");
     private final TypeSpec mutableListSpec;
     private final TypeSpec mutableSetSpec;
     private final TypeSpec mutableMapSpec;
 
     CollectionBuilderUtils(List<RecordClassType> recordComponents, RecordBuilder.Options metaData) {
-        useImmutableCollections = metaData.useImmutableCollections();
+        usePersistentCollections = metaData.usePersistentCollections();
+        useImmutableCollections = metaData.useImmutableCollections() || usePersistentCollections;
         useUnmodifiableCollections = !useImmutableCollections && metaData.useUnmodifiableCollections();
         allowNullableCollections = metaData.allowNullableCollections();
         addSingleItemCollectionBuilders = metaData.addSingleItemCollectionBuilders();
         addClassRetainedGenerated = metaData.addClassRetainedGenerated();
+        useRuntimeShims = metaData.useRuntimeCollectionShims();
 
         interpretNotNulls = metaData.interpretNotNulls();
         notNullPattern = Pattern.compile(metaData.interpretNotNullsPattern());
@@ -122,12 +132,15 @@ class CollectionBuilderUtils {
         setMakerMethodName = disambiguateGeneratedMethodName(recordComponents, "__ensureSetMutable", 0);
         mapMakerMethodName = disambiguateGeneratedMethodName(recordComponents, "__ensureMapMutable", 0);
 
-        mutableListSpec = buildMutableCollectionSubType(metaData.mutableListClassName(), mutableListTypeName,
-                parameterizedListType, tType);
-        mutableSetSpec = buildMutableCollectionSubType(metaData.mutableSetClassName(), mutableSetTypeName,
-                parameterizedSetType, tType);
-        mutableMapSpec = buildMutableCollectionSubType(metaData.mutableMapClassName(), mutableMapTypeName,
-                parameterizedMapType, kType, vType);
+        mutableListSpec = buildMutableCollectionSubType(metaData.mutableListClassName(),
+                usePersistentCollections ? persistentListTypeName.nestedClass("Mutable") : mutableListTypeName,
+                collectionType, tType);
+        mutableSetSpec = buildMutableCollectionSubType(metaData.mutableSetClassName(),
+                usePersistentCollections ? persistentSetTypeName.nestedClass("Mutable") : mutableSetTypeName,
+                collectionType, tType);
+        mutableMapSpec = buildMutableCollectionSubType(metaData.mutableMapClassName(),
+                usePersistentCollections ? persistentMapTypeName.nestedClass("Mutable") : mutableMapTypeName, mapType,
+                kType, vType);
     }
 
     enum SingleItemsMetaDataMode {
@@ -220,37 +233,37 @@ class CollectionBuilderUtils {
             if (isList(component)) {
                 if (isNullableCollection(component)) {
                     needsNullableListShim = true;
-                    builder.add("$L($L)", nullableListShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 } else {
                     needsListShim = true;
                     needsListMutableMaker = true;
-                    builder.add("$L($L)", listShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 }
             } else if (isMap(component)) {
                 if (isNullableCollection(component)) {
                     needsNullableMapShim = true;
-                    builder.add("$L($L)", nullableMapShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 } else {
                     needsMapShim = true;
                     needsMapMutableMaker = true;
-                    builder.add("$L($L)", mapShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 }
             } else if (isSet(component)) {
                 if (isNullableCollection(component)) {
                     needsNullableSetShim = true;
-                    builder.add("$L($L)", nullableSetShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 } else {
                     needsSetShim = true;
                     needsSetMutableMaker = true;
-                    builder.add("$L($L)", setShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 }
             } else if (isCollection(component)) {
                 if (isNullableCollection(component)) {
                     needsNullableCollectionShim = true;
-                    builder.add("$L($L)", nullableCollectionShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 } else {
                     needsCollectionShim = true;
-                    builder.add("$L($L)", collectionShimName, component.name());
+                    builder.add("$L($L)", shimReference(component), component.name());
                 }
             } else {
                 builder.add("$L", component.name());
@@ -260,7 +273,48 @@ class CollectionBuilderUtils {
         }
     }
 
-    String shimName(RecordClassType component) {
+    CodeBlock shimReference(RecordClassType component) {
+        if (useRuntimeShims) {
+            var mode = usePersistentCollections ? "persistent"
+                    : (useImmutableCollections ? "immutable" : "unmodifiable");
+            var name = mode + collectionKind(component);
+            return CodeBlock.of("$T.$L", collectionShimsTypeName,
+                    isNullableCollection(component) ? ("nullable" + capitalize(name)) : name);
+        }
+        return CodeBlock.of("$L", shimName(component));
+    }
+
+    CodeBlock mutableMakerReference(RecordClassType component) {
+        if (useRuntimeShims) {
+            return CodeBlock.of("$T.$L", collectionShimsTypeName,
+                    (usePersistentCollections ? "persistentMutable" : "mutable") + collectionKind(component));
+        }
+        return CodeBlock.of("$L", mutableMakerName(component));
+    }
+
+    ClassName mutableCollectionTypeName(RecordClassType component) {
+        if (useRuntimeShims) {
+            return collectionShimsTypeName.nestedClass(
+                    (usePersistentCollections ? "PersistentMutable" : "Mutable") + collectionKind(component));
+        }
+        return ClassName.get("", mutableCollectionClassName(component));
+    }
+
+    private String collectionKind(RecordClassType component) {
+        if (isList(component)) {
+            return "List";
+        } else if (isMap(component)) {
+            return "Map";
+        } else if (isSet(component)) {
+            return "Set";
+        } else if (isCollection(component)) {
+            return "Collection";
+        } else {
+            throw new IllegalArgumentException(component + " is not a supported collection type");
+        }
+    }
+
+    private String shimName(RecordClassType component) {
         if (isList(component)) {
             return isNullableCollection(component) ? nullableListShimName : listShimName;
         } else if (isMap(component)) {
@@ -274,7 +328,7 @@ class CollectionBuilderUtils {
         }
     }
 
-    String mutableMakerName(RecordClassType component) {
+    private String mutableMakerName(RecordClassType component) {
         if (isList(component)) {
             return listMakerMethodName;
         } else if (isMap(component)) {
@@ -286,8 +340,20 @@ class CollectionBuilderUtils {
         }
     }
 
+    private String mutableCollectionClassName(RecordClassType component) {
+        if (isList(component)) {
+            return mutableListSpec.name();
+        } else if (isMap(component)) {
+            return mutableMapSpec.name();
+        } else if (isSet(component)) {
+            return mutableSetSpec.name();
+        } else {
+            throw new IllegalArgumentException(component + " is not a supported collection type");
+        }
+    }
+
     void addShims(TypeSpec.Builder builder) {
-        if (!useImmutableCollections && !useUnmodifiableCollections) {
+        if ((!useImmutableCollections && !useUnmodifiableCollections) || useRuntimeShims) {
             return;
         }
 
@@ -325,7 +391,7 @@ class CollectionBuilderUtils {
     }
 
     void addMutableMakers(TypeSpec.Builder builder) {
-        if (!useImmutableCollections && !useUnmodifiableCollections) {
+        if ((!useImmutableCollections && !useUnmodifiableCollections) || useRuntimeShims) {
             return;
         }
 
@@ -398,7 +464,8 @@ class CollectionBuilderUtils {
 
     private CodeBlock buildShimMethodBody(TypeName mainType, ParameterizedTypeName parameterizedType) {
         if (!useUnmodifiableCollections) {
-            return CodeBlock.of("return (o != null) ? $T.copyOf(o) : $T.of()", mainType, mainType);
+            var immutableType = immutableTypeName(mainType);
+            return CodeBlock.of("return (o != null) ? $T.copyOf(o) : $T.of()", immutableType, immutableType);
         }
 
         if (mainType.equals(listTypeName)) {
@@ -419,6 +486,22 @@ class CollectionBuilderUtils {
         throw new IllegalStateException("Cannot build shim method for " + mainType);
     }
 
+    private TypeName immutableTypeName(TypeName mainType) {
+        if (!usePersistentCollections) {
+            return mainType;
+        }
+        if (mainType.equals(listTypeName)) {
+            return persistentListTypeName;
+        }
+        if (mainType.equals(setTypeName)) {
+            return persistentSetTypeName;
+        }
+        if (mainType.equals(mapTypeName)) {
+            return persistentMapTypeName;
+        }
+        throw new IllegalStateException("No persistent collection for " + mainType);
+    }
+
     private MethodSpec buildNullableShimMethod(String name, TypeName mainType, Class<?> abstractType,
             ParameterizedTypeName parameterizedType, TypeVariableName... typeVariables) {
         var code = buildNullableShimMethodBody(mainType, parameterizedType);
@@ -433,7 +516,7 @@ class CollectionBuilderUtils {
 
     private CodeBlock buildNullableShimMethodBody(TypeName mainType, ParameterizedTypeName parameterizedType) {
         if (!useUnmodifiableCollections) {
-            return CodeBlock.of("return (o != null) ? $T.copyOf(o) : null", mainType);
+            return CodeBlock.of("return (o != null) ? $T.copyOf(o) : null", immutableTypeName(mainType));
         }
 
         if (mainType.equals(listTypeName)) {
@@ -465,22 +548,28 @@ class CollectionBuilderUtils {
                 .addStatement(isMutableCase).addStatement(defaultCase).build();
     }
 
-    private TypeSpec buildMutableCollectionSubType(String className, ClassName mutableCollectionType,
-            ParameterizedTypeName parameterizedType, TypeVariableName... typeVariables) {
+    private TypeSpec buildMutableCollectionSubType(String className, ClassName mutableCollectionType, Class<?> copyType,
+            TypeVariableName... typeVariables) {
         TypeName[] typeArguments = new TypeName[] {};
         typeArguments = Arrays.stream(typeVariables).toList().toArray(typeArguments);
+        TypeName[] wildCardTypeArguments = Arrays.stream(typeVariables).map(WildcardTypeName::subtypeOf).toList()
+                .toArray(new TypeName[0]);
+        var copyParameterizedType = ParameterizedTypeName.get(ClassName.get(copyType), wildCardTypeArguments);
 
         TypeSpec.Builder builder = TypeSpec.classBuilder(className).addAnnotation(generatedRecordBuilderAnnotation)
                 .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
                 .superclass(ParameterizedTypeName.get(mutableCollectionType, typeArguments))
-                .addTypeVariables(Arrays.asList(typeVariables))
-                .addField(FieldSpec
-                        .builder(TypeName.LONG, "serialVersionUID", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
-                        .addAnnotation(Serial.class).initializer("1L").build())
-                .addMethod(MethodSpec.constructorBuilder().addAnnotation(generatedRecordBuilderAnnotation)
-                        .addStatement("super()").build())
+                .addTypeVariables(Arrays.asList(typeVariables));
+        if (!usePersistentCollections) {
+            // the persistent collections are not Serializable
+            builder.addField(FieldSpec
+                    .builder(TypeName.LONG, "serialVersionUID", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .addAnnotation(Serial.class).initializer("1L").build());
+        }
+        builder.addMethod(MethodSpec.constructorBuilder().addAnnotation(generatedRecordBuilderAnnotation)
+                .addStatement("super()").build())
                 .addMethod(MethodSpec.constructorBuilder().addAnnotation(generatedRecordBuilderAnnotation)
-                        .addParameter(parameterizedType, "o").addStatement("super(o)").build());
+                        .addParameter(copyParameterizedType, "o").addStatement("super(o)").build());
 
         if (addClassRetainedGenerated) {
             builder.addAnnotation(recordBuilderGeneratedAnnotation);
@@ -500,8 +589,10 @@ class CollectionBuilderUtils {
     private CodeBlock buildCollectionShimMethodBody() {
         if (!useUnmodifiableCollections) {
             return CodeBlock.builder().add("if (o instanceof Set) {\n").indent()
-                    .addStatement("return $T.copyOf(o)", setTypeName).unindent().addStatement("}")
-                    .addStatement("return (o != null) ? $T.copyOf(o) : $T.of()", listTypeName, listTypeName).build();
+                    .addStatement("return $T.copyOf(o)", immutableTypeName(setTypeName)).unindent().addStatement("}")
+                    .addStatement("return (o != null) ? $T.copyOf(o) : $T.of()", immutableTypeName(listTypeName),
+                            immutableTypeName(listTypeName))
+                    .build();
         }
 
         return CodeBlock.builder().beginControlFlow("if (o instanceof $T)", listType)
@@ -524,8 +615,8 @@ class CollectionBuilderUtils {
     private CodeBlock buildNullableCollectionShimMethodBody() {
         if (!useUnmodifiableCollections) {
             return CodeBlock.builder().add("if (o instanceof Set) {\n").indent()
-                    .addStatement("return $T.copyOf(o)", setTypeName).unindent().addStatement("}")
-                    .addStatement("return (o != null) ? $T.copyOf(o) : null", listTypeName).build();
+                    .addStatement("return $T.copyOf(o)", immutableTypeName(setTypeName)).unindent().addStatement("}")
+                    .addStatement("return (o != null) ? $T.copyOf(o) : null", immutableTypeName(listTypeName)).build();
         }
 
         return CodeBlock.builder().beginControlFlow("if (o instanceof $T)", listType)
@@ -78,8 +78,20 @@ public class ElementUtils {
 
     public static List<String> getAnnotationTargetTypes(ProcessingEnvironment processingEnv,
             AnnotationMirror annotationMirror) {
+        Element annotationElement = annotationMirror.getAnnotationType().asElement();
+        if (annotationElement.getKind() != ElementKind.ANNOTATION_TYPE) {
+            // don't cache unresolved types as they may be resolved in a later round
+            return findAnnotationTargetTypes(processingEnv, annotationElement);
+        }
+        return ProcessingCache.get(processingEnv).annotationTargets().get(
+                ((TypeElement) annotationElement).getQualifiedName().toString(),
+                () -> findAnnotationTargetTypes(processingEnv, annotationElement));
+    }
+
+    private static List<String> findAnnotationTargetTypes(ProcessingEnvironment processingEnv,
+            Element annotationElement) {
         Optional<? extends AnnotationMirror> targetMirror = ElementUtils.findAnnotationMirror(processingEnv,
-                annotationMirror.getAnnotationType().asElement(), Target.class.getName());
+                annotationElement, Target.class.getName());
         if (targetMirror.isEmpty()) {
             return List.of();
         }
@@ -180,8 +192,9 @@ public class ElementUtils {
             List<? extends AnnotationMirror> canonicalConstructorAnnotations) {
         var typeName = TypeName.get(recordComponent.asType());
         var rawTypeName = TypeName.get(processingEnv.getTypeUtils().erasure(recordComponent.asType()));
-        return new RecordClassType(typeName, rawTypeName, recordComponent.getSimpleName().toString(),
-                recordComponent.getSimpleName().toString(), accessorAnnotations, canonicalConstructorAnnotations);
+        return new RecordClassType(typeName, rawTypeName, recordComponent.asType(),
+                recordComponent.getSimpleName().toString(), recordComponent.getSimpleName().toString(),
+                accessorAnnotations, canonicalConstructorAnnotations);
     }
 
     public static String getWithMethodName(ClassType component, String prefix) {
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.processor;
+
+import com.palantir.javapoet.TypeVariableName;
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Content-hash cache for generated builders. Each entry is stored as a resource in the class output directory and
+ * contains a fingerprint of everything that influences the generated builder (the record's components, types,
+ * annotations and members, the types referenced by the components plus the effective options), the diagnostics that
+ * were reported while generating the builder and the generated source. When the fingerprint of a record matches the
+ * stored entry the cached source can be used without building/rendering the JavaPoet specs. The stored diagnostics are
+ * then reported again so that a cache hit doesn't hide warnings/errors.
+ */
+class GenerationCache {
+    /**
+     * Processor option (i.e. {@code -AgenerationCache=true}) that enables the cache
+     */
+    static final String GENERATION_CACHE_OPTION = "generationCache";
+
+    private static final String CACHE_DIRECTORY = "META-INF/record-builder/cache/";
+    private static final int FORMAT_VERSION = 2;
+    private static final String PROCESSOR_VERSION = processorVersion();
+
+    private final ProcessingEnvironment processingEnv;
+
+    record Entry(String qualifiedName, String fingerprint, List<CachedDiagnostic> diagnostics) {
+        Entry withDiagnostics(List<CachedDiagnostic> diagnostics) {
+            return new Entry(qualifiedName, fingerprint, List.copyOf(diagnostics));
+        }
+    }
+
+    record CachedDiagnostic(Diagnostic.Kind kind, String message) {
+    }
+
+    record CachedSource(String source, List<CachedDiagnostic> diagnostics) {
+    }
+
+    GenerationCache(ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+    }
+
+    Entry entry(String qualifiedName, RecordFacade recordFacade, TypeElement record, RecordBuilder.Options metaData) {
+        var fingerprint = new StringBuilder().append(FORMAT_VERSION).append('\n').append(PROCESSOR_VERSION).append('\n')
+                .append(Runtime.version()).append('\n');
+
+        appendOptions(fingerprint, metaData);
+
+        fingerprint.append(recordFacade.packageName()).append('\n').append(recordFacade.recordClassType().typeName())
+                .append('\n').append(recordFacade.builderClassType().typeName()).append('\n')
+                .append(recordFacade.modifiers()).append('\n').append(recordFacade.builderIsInRecordPackage())
+                .append('\n');
+        for (TypeVariableName typeVariable : recordFacade.typeVariables()) {
+            fingerprint.append(typeVariable).append(typeVariable.bounds()).append('\n');
+        }
+        for (RecordClassType component : recordFacade.recordComponents()) {
+            fingerprint.append(component.typeName()).append(' ').append(component.rawTypeName()).append(' ')
+                    .append(component.name()).append(' ').append(component.accessorName()).append(' ')
+                    .append(component.getAccessorAnnotations()).append(' ')
+                    .append(component.getCanonicalConstructorAnnotations()).append('\n');
+        }
+        Set<String> referencedTypes = new HashSet<>();
+        recordFacade.recordComponents()
+                .forEach(component -> appendReferencedTypes(fingerprint, component.typeMirror(), referencedTypes));
+        new TreeMap<>(recordFacade.initializers())
+                .forEach((name, initializer) -> fingerprint.append(name).append('=').append(initializer).append('\n'));
+
+        appendElement(fingerprint, record);
+        record.getInterfaces().forEach(type -> fingerprint.append(type).append('\n'));
+        record.getEnclosedElements().forEach(element -> appendElement(fingerprint, element));
+        for (Element enclosing = record.getEnclosingElement(); enclosing != null; enclosing = enclosing
+                .getEnclosingElement()) {
+            appendElement(fingerprint, enclosing);
+        }
+
+        return new Entry(qualifiedName, hash(fingerprint.toString()), List.of());
+    }
+
+    Optional<CachedSource> cachedSource(Entry entry) {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    resourceName(entry));
+            String content = resource.getCharContent(true).toString();
+            int newLine = content.indexOf('\n');
+            if ((newLine > 0) && content.substring(0, newLine).equals(entry.fingerprint())) {
+                int position = newLine + 1;
+                newLine = content.indexOf('\n', position);
+                int diagnosticQty = Integer.parseInt(content.substring(position, newLine));
+                List<CachedDiagnostic> diagnostics = new ArrayList<>(diagnosticQty);
+                for (int i = 0; i < diagnosticQty; ++i) {
+                    position = newLine + 1;
+                    newLine = content.indexOf('\n', position);
+                    String line = content.substring(position, newLine);
+                    int space = line.indexOf(' ');
+                    diagnostics.add(new CachedDiagnostic(Diagnostic.Kind.valueOf(line.substring(0, space)),
+                            unescape(line.substring(space + 1))));
+                }
+                return Optional.of(new CachedSource(content.substring(newLine + 1), diagnostics));
+            }
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            // no entry or the entry can't be read - treat as a cache miss
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns a processing environment that reports to the real messager and, at the same time, adds each diagnostic to
+     * the given list so that it can be stored with the cache entry
+     */
+    ProcessingEnvironment recordingEnvironment(List<CachedDiagnostic> diagnostics) {
+        Messager messager = processingEnv.getMessager();
+        Messager recordingMessager = new Messager() {
+            @Override
+            public void printMessage(Diagnostic.Kind kind, CharSequence message) {
+                diagnostics.add(new CachedDiagnostic(kind, message.toString()));
+                messager.printMessage(kind, message);
+            }
+
+            @Override
+            public void printMessage(Diagnostic.Kind kind, CharSequence message, Element element) {
+                diagnostics.add(new CachedDiagnostic(kind, message.toString()));
+                messager.printMessage(kind, message, element);
+            }
+
+            @Override
+            public void printMessage(Diagnostic.Kind kind, CharSequence message, Element element,
+                    AnnotationMirror annotationMirror) {
+                diagnostics.add(new CachedDiagnostic(kind, message.toString()));
+                messager.printMessage(kind, message, element, annotationMirror);
+            }
+
+            @Override
+            public void printMessage(Diagnostic.Kind kind, CharSequence message, Element element,
+                    AnnotationMirror annotationMirror, AnnotationValue annotationValue) {
+                diagnostics.add(new CachedDiagnostic(kind, message.toString()));
+                messager.printMessage(kind, message, element, annotationMirror, annotationValue);
+            }
+        };
+        return new ProcessingEnvironment() {
+            @Override
+            public Map<String, String> getOptions() {
+                return processingEnv.getOptions();
+            }
+
+            @Override
+            public Messager getMessager() {
+                return recordingMessager;
+            }
+
+            @Override
+            public Filer getFiler() {
+                return processingEnv.getFiler();
+            }
+
+            @Override
+            public Elements getElementUtils() {
+                return processingEnv.getElementUtils();
+            }
+
+            @Override
+            public Types getTypeUtils() {
+                return processingEnv.getTypeUtils();
+            }
+
+            @Override
+            public SourceVersion getSourceVersion() {
+                return processingEnv.getSourceVersion();
+            }
+
+            @Override
+            public Locale getLocale() {
+                return processingEnv.getLocale();
+            }
+
+            @Override
+            public boolean isPreviewEnabled() {
+                return processingEnv.isPreviewEnabled();
+            }
+        };
+    }
+
+    /**
+     * Returns a writer that writes to the given source writer and, at the same time, to the cache entry
+     */
+    Writer storingWriter(Element element, Entry entry, Writer sourceWriter) throws IOException {
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                resourceName(entry), element);
+        Writer cacheWriter = new BufferedWriter(resource.openWriter());
+        cacheWriter.write(entry.fingerprint());
+        cacheWriter.write('\n');
+        cacheWriter.write(String.valueOf(entry.diagnostics().size()));
+        cacheWriter.write('\n');
+        for (CachedDiagnostic diagnostic : entry.diagnostics()) {
+            cacheWriter.write(diagnostic.kind().name());
+            cacheWriter.write(' ');
+            cacheWriter.write(escape(diagnostic.message()));
+            cacheWriter.write('\n');
+        }
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                sourceWriter.write(buffer, offset, length);
+                cacheWriter.write(buffer, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                sourceWriter.flush();
+                cacheWriter.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try (sourceWriter; cacheWriter) {
+                    flush();
+                }
+            }
+        };
+    }
+
+    private static String resourceName(Entry entry) {
+        return CACHE_DIRECTORY + entry.qualifiedName() + ".txt";
+    }
+
+    private static String escape(String message) {
+        return message.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String message) {
+        var unescaped = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); ++i) {
+            char c = message.charAt(i);
+            if ((c == '\\') && ((i + 1) < message.length())) {
+                c = message.charAt(++i);
+                c = switch (c) {
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> c;
+                };
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * The builder depends on the types that the components reference (e.g. whether they are records, Comparable,
+     * annotated, etc.) so their annotations and members are part of the fingerprint. JDK types can only change with the
+     * runtime version which is already part of the fingerprint.
+     */
+    private static void appendReferencedTypes(StringBuilder fingerprint, TypeMirror type, Set<String> referencedTypes) {
+        switch (type.getKind()) {
+        case ARRAY -> appendReferencedTypes(fingerprint, ((ArrayType) type).getComponentType(), referencedTypes);
+        case WILDCARD -> {
+            WildcardType wildcardType = (WildcardType) type;
+            if (wildcardType.getExtendsBound() != null) {
+                appendReferencedTypes(fingerprint, wildcardType.getExtendsBound(), referencedTypes);
+            }
+            if (wildcardType.getSuperBound() != null) {
+                appendReferencedTypes(fingerprint, wildcardType.getSuperBound(), referencedTypes);
+            }
+        }
+        case DECLARED -> {
+            DeclaredType declaredType = (DeclaredType) type;
+            declaredType.getTypeArguments()
+                    .forEach(typeArgument -> appendReferencedTypes(fingerprint, typeArgument, referencedTypes));
+            if (declaredType.asElement() instanceof TypeElement typeElement) {
+                String qualifiedName = typeElement.getQualifiedName().toString();
+                if (!qualifiedName.startsWith("java.") && referencedTypes.add(qualifiedName)) {
+                    fingerprint.append("referenced ").append(qualifiedName).append('\n');
+                    appendElement(fingerprint, typeElement);
+                    fingerprint.append(typeElement.getSuperclass()).append(typeElement.getInterfaces()).append('\n');
+                    typeElement.getEnclosedElements().forEach(element -> appendElement(fingerprint, element));
+                }
+            }
+        }
+        default -> {
+            // primitives and type variables - type variables are part of the record's type variables
+        }
+        }
+    }
+
+    private static void appendElement(StringBuilder fingerprint, Element element) {
+        fingerprint.append(element.getKind()).append(' ').append(element.getSimpleName()).append(' ')
+                .append(element.getModifiers()).append(' ').append(element.asType()).append(' ')
+                .append(element.getAnnotationMirrors()).append('\n');
+        if (element instanceof ExecutableElement executableElement) {
+            executableElement.getParameters().forEach(parameter -> fingerprint.append(parameter.asType()).append(' ')
+                    .append(parameter.getAnnotationMirrors()).append('\n'));
+        }
+    }
+
+    private static void appendOptions(StringBuilder fingerprint, RecordBuilder.Options metaData) {
+        Method[] methods = RecordBuilder.Options.class.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        for (Method method : methods) {
+            Object value;
+            try {
+                value = method.invoke(metaData);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not read option: " + method.getName(), e);
+            }
+            fingerprint.append(method.getName()).append('=')
+                    .append(value instanceof Object[] array ? Arrays.toString(array) : value).append('\n');
+        }
+    }
+
+    private static String hash(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String processorVersion() {
+        // the implementation version doesn't change between snapshot builds so the
+        // processor jar's size/timestamp are included to detect processor changes
+        String version = String.valueOf(GenerationCache.class.getPackage().getImplementationVersion());
+        CodeSource codeSource = GenerationCache.class.getProtectionDomain().getCodeSource();
+        if ((codeSource != null) && (codeSource.getLocation() != null)) {
+            try {
+                File location = new File(codeSource.getLocation().toURI());
+                if (location.isFile()) {
+                    version = version + " " + location.length() + " " + location.lastModified();
+                }
+            } catch (URISyntaxException | IllegalArgumentException | SecurityException e) {
+                // ignore - use the implementation version only
+            }
+        }
+        return version;
+    }
+}
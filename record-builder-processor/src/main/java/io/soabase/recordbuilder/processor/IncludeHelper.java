@@ -52,7 +52,8 @@ class IncludeHelper {
             }
             isValid = processList(processingEnv, isValid, element, valueList, classTypeElements);
             isValid = processList(processingEnv, isValid, element, classesList, classTypeElements);
-            packages.ifPresent(annotationValue -> processPackages(processingEnv, classTypeElements, packagesList));
+            packages.ifPresent(
+                    annotationValue -> processPackages(processingEnv, element, classTypeElements, packagesList));
         } else {
             processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not read attribute for annotation",
                     element);
@@ -89,15 +90,40 @@ class IncludeHelper {
         return isValid;
     }
 
-    private void processPackages(ProcessingEnvironment processingEnv, List<TypeElement> classTypeElements,
-            List<String> packagesList) {
+    private void processPackages(ProcessingEnvironment processingEnv, Element element,
+            List<TypeElement> classTypeElements, List<String> packagesList) {
+        var processingCache = ProcessingCache.get(processingEnv);
         for (var packageName : packagesList) {
             var packageElement = processingEnv.getElementUtils().getPackageElement(packageName);
-            for (var child : packageElement.getEnclosedElements()) {
-                if (child.getKind() == ElementKind.RECORD) {
-                    classTypeElements.add((TypeElement) child);
+            if (packageElement == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not find package: " + packageName, element);
+                continue;
+            }
+            var recordNames = processingCache.packageRecords().get(packageName,
+                    () -> findPackageRecords(processingEnv, processingCache, packageElement));
+            for (var recordName : recordNames) {
+                var typeElement = processingEnv.getElementUtils().getTypeElement(recordName);
+                if (typeElement != null) {
+                    classTypeElements.add(typeElement);
                 }
             }
         }
     }
+
+    private List<String> findPackageRecords(ProcessingEnvironment processingEnv, ProcessingCache processingCache,
+            PackageElement packageElement) {
+        var packageName = packageElement.getQualifiedName().toString();
+        // an index on the class path avoids enumerating (and thus loading) every class in the package. It's not
+        // used for packages that are being compiled as the index could be from a previous compilation
+        if (!processingCache.isCompiledPackage(packageName)) {
+            var index = IncludeIndex.read(processingEnv, packageName);
+            if (index.isPresent() && index.get().stream()
+                    .allMatch(recordName -> processingEnv.getElementUtils().getTypeElement(recordName) != null)) {
+                return index.get();
+            }
+        }
+        return packageElement.getEnclosedElements().stream().filter(child -> child.getKind() == ElementKind.RECORD)
+                .map(child -> ((TypeElement) child).getQualifiedName().toString()).toList();
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Index of the records in each package of a module. When enabled, it is written to the class output as
+ * {@code META-INF/record-builder/include-index/<package>.txt} (one record name per line). Includes of a package (i.e.
+ * {@code @RecordBuilder.Include(packages = ...)}) in other modules read the index from the class path instead of
+ * enumerating every element of the package.
+ */
+class IncludeIndex {
+    /**
+     * Processor option (i.e. {@code -AincludeIndex=true}) that writes the index for the records being compiled
+     */
+    static final String INCLUDE_INDEX_OPTION = "includeIndex";
+
+    private static final String INDEX_DIRECTORY = "META-INF/record-builder/include-index/";
+
+    private final Map<String, List<TypeElement>> packageRecords = new TreeMap<>();
+
+    static Optional<List<String>> read(ProcessingEnvironment processingEnv, String packageName) {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_PATH, "",
+                    resourceName(packageName));
+            return Optional
+                    .of(resource.getCharContent(true).toString().lines().filter(line -> !line.isBlank()).toList());
+        } catch (IOException | IllegalArgumentException e) {
+            // no index for the package
+            return Optional.empty();
+        }
+    }
+
+    void add(String packageName, TypeElement record) {
+        packageRecords.computeIfAbsent(packageName, __ -> new ArrayList<>()).add(record);
+    }
+
+    void write(ProcessingEnvironment processingEnv) {
+        packageRecords.forEach((packageName, records) -> {
+            try {
+                FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                        resourceName(packageName), records.toArray(Element[]::new));
+                try (Writer writer = resource.openWriter()) {
+                    for (TypeElement record : records) {
+                        writer.write(record.getQualifiedName().toString());
+                        writer.write('\n');
+                    }
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not create include index for package " + packageName + ": " + e.getMessage());
+            }
+        });
+        packageRecords.clear();
+    }
+
+    private static String resourceName(String packageName) {
+        return INDEX_DIRECTORY + packageName + ".txt";
+    }
+}
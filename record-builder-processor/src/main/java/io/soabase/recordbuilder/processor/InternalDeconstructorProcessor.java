@@ -250,8 +250,8 @@ class InternalDeconstructorProcessor {
                     .filter(annotation -> !annotation.getAnnotationType().asElement().getSimpleName().toString()
                             .equals(DeconstructorAccessor.class.getSimpleName()))
                     .toList();
-            var type = new RecordClassType(typeName, rawTypeName, name, executableElement.getSimpleName().toString(),
-                    annotationMirrors, List.of());
+            var type = new RecordClassType(typeName, rawTypeName, executableElement.getReturnType(), name,
+                    executableElement.getSimpleName().toString(), annotationMirrors, List.of());
 
             int order = deconstructorAccessor.order();
             if (order == Integer.MAX_VALUE) {
@@ -298,27 +298,27 @@ class InternalDeconstructorProcessor {
             ValidatedParameter validatedParameter = validateParameter(parameter.getSimpleName().toString(),
                     parameter.asType());
             return new RecordClassType(validatedParameter.typeName, validatedParameter.rawTypeName,
-                    parameter.getSimpleName().toString(), parameter.getSimpleName().toString(),
-                    parameter.getAnnotationMirrors(), List.of());
+                    validatedParameter.typeMirror, parameter.getSimpleName().toString(),
+                    parameter.getSimpleName().toString(), parameter.getAnnotationMirrors(), List.of());
         }).toList();
     }
 
-    private record ValidatedParameter(TypeName typeName, TypeName rawTypeName) {
+    private record ValidatedParameter(TypeName typeName, TypeName rawTypeName, TypeMirror typeMirror) {
     }
 
     private ValidatedParameter validateParameter(String name, TypeMirror typeMirror) {
         TypeName rawTypeName = TypeName.get(processingEnv.getTypeUtils().erasure(typeMirror));
 
         if (rawTypeName.equals(intConsumerType)) {
-            return new ValidatedParameter(intType, intType);
+            return new ValidatedParameter(intType, intType, primitiveType(TypeKind.INT));
         }
 
         if (rawTypeName.equals(longConsumerType)) {
-            return new ValidatedParameter(longType, longType);
+            return new ValidatedParameter(longType, longType, primitiveType(TypeKind.LONG));
         }
 
         if (rawTypeName.equals(doubleConsumerType)) {
-            return new ValidatedParameter(doubleType, doubleType);
+            return new ValidatedParameter(doubleType, doubleType, primitiveType(TypeKind.DOUBLE));
         }
 
         if (rawTypeName.equals(consumerType)) {
@@ -327,15 +327,21 @@ class InternalDeconstructorProcessor {
             if (typeParameter.getKind() == TypeKind.WILDCARD) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
                         "Deconstructor parameters cannot be wildcards: " + name, element);
-                return new ValidatedParameter(booleanType, booleanType); // any default here
+                // any default here
+                return new ValidatedParameter(booleanType, booleanType, primitiveType(TypeKind.BOOLEAN));
             }
             return new ValidatedParameter(TypeName.get(typeParameter),
-                    TypeName.get(processingEnv.getTypeUtils().erasure(typeParameter)));
+                    TypeName.get(processingEnv.getTypeUtils().erasure(typeParameter)), typeParameter);
         }
 
         processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Invalid deconstructor parameter type: " + name,
                 element);
-        return new ValidatedParameter(booleanType, booleanType); // any default here
+        // any default here
+        return new ValidatedParameter(booleanType, booleanType, primitiveType(TypeKind.BOOLEAN));
+    }
+
+    private TypeMirror primitiveType(TypeKind kind) {
+        return processingEnv.getTypeUtils().getPrimitiveType(kind);
     }
 
     private void addRecordComponents() {
@@ -367,7 +373,9 @@ class InternalDeconstructorProcessor {
         CodeBlock.Builder codeBlockBuilder = CodeBlock.builder();
 
         if (element instanceof ExecutableElement) {
-            if (canUseBuilder) {
+            if (deconstructor.reuseComponentHolder()) {
+                addCodeWithHolder(codeBlockBuilder, methodBuilder, parameterName);
+            } else if (canUseBuilder) {
                 addCodeWithBuilder(codeBlockBuilder, variableName, parameterName);
             } else {
                 addCodeWithoutBuilder(codeBlockBuilder, variableName, parameterName);
@@ -459,6 +467,137 @@ class InternalDeconstructorProcessor {
         codeBlockBuilder.add(");\n");
     }
 
+    private void addCodeWithHolder(CodeBlock.Builder codeBlockBuilder, MethodSpec.Builder methodBuilder,
+            String parameterName) {
+        /*
+         * Uses a reusable holder so that only the record is allocated:
+         *
+         * _DeconstructorHolder holder = _DeconstructorHolder.acquire(); try { rhs.deconstructor(holder.setQty,
+         * (Consumer<String>) (Consumer<?>) holder.setName); return new MyClassDao(holder.qty, (String) holder.name); }
+         * finally { holder.release(); }
+         */
+        addHolderClass();
+
+        String holderClassName = deconstructor.componentHolderClassName();
+        String variableName = uniqueName("holder");
+        codeBlockBuilder.addStatement("$L $L = $L.acquire()", holderClassName, variableName, holderClassName);
+        codeBlockBuilder.beginControlFlow("try");
+
+        codeBlockBuilder.add("$[$L.$L(", parameterName, element.getSimpleName());
+        IntStream.range(0, recordComponents.size()).forEach(index -> {
+            RecordClassType component = recordComponents.get(index);
+            if (index > 0) {
+                codeBlockBuilder.add(", ");
+            }
+            if (component.typeName().isPrimitive()) {
+                codeBlockBuilder.add("$L.$L", variableName, holderConsumerName(component));
+            } else {
+                codeBlockBuilder
+                        .add("($T) ($T) $L.$L",
+                                ParameterizedTypeName.get(ClassName.get(Consumer.class), component.typeName()),
+                                ParameterizedTypeName.get(ClassName.get(Consumer.class),
+                                        WildcardTypeName.subtypeOf(Object.class)),
+                                variableName, holderConsumerName(component));
+            }
+        });
+        codeBlockBuilder.add(");\n$]");
+
+        codeBlockBuilder.add("$[return new $T(", recordClassType.typeName());
+        IntStream.range(0, recordComponents.size()).forEach(index -> {
+            RecordClassType component = recordComponents.get(index);
+            if (index > 0) {
+                codeBlockBuilder.add(", ");
+            }
+            if (component.typeName().isPrimitive()) {
+                codeBlockBuilder.add("$L.$L", variableName, component.name());
+            } else {
+                codeBlockBuilder.add("($T) $L.$L", component.typeName(), variableName, component.name());
+            }
+        });
+        codeBlockBuilder.add(");\n$]");
+
+        codeBlockBuilder.nextControlFlow("finally");
+        codeBlockBuilder.addStatement("$L.release()", variableName);
+        codeBlockBuilder.endControlFlow();
+
+        if (recordComponents.stream().anyMatch(component -> !component.typeName().isPrimitive())) {
+            methodBuilder.addAnnotation(
+                    AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+        }
+    }
+
+    private void addHolderClass() {
+        /*
+         * Adds a holder class that is reused per-thread similar to:
+         *
+         * private static final class _DeconstructorHolder { private static final ThreadLocal<_DeconstructorHolder>
+         * holders = ThreadLocal.withInitial(_DeconstructorHolder::new);
+         *
+         * private boolean inUse; private int qty; private Object name;
+         *
+         * private final IntConsumer setQty = value -> qty = value; private final Consumer<Object> setName = value ->
+         * name = value;
+         *
+         * ... acquire() and release() }
+         */
+        String holderClassName = deconstructor.componentHolderClassName();
+        ClassName holderType = ClassName.get(packageName, recordClassType.name(), holderClassName);
+        TypeSpec.Builder holderBuilder = TypeSpec.classBuilder(holderClassName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(generatedRecordBuilderAnnotation);
+
+        String holdersName = uniqueName("holders");
+        String inUseName = uniqueName("inUse");
+        holderBuilder.addField(FieldSpec
+                .builder(ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), holderType), holdersName,
+                        Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.withInitial($L::new)", ThreadLocal.class, holderClassName).build());
+        holderBuilder.addField(TypeName.BOOLEAN, inUseName, Modifier.PRIVATE);
+
+        recordComponents.forEach(component -> {
+            boolean isPrimitive = component.typeName().isPrimitive();
+            holderBuilder.addField(isPrimitive ? component.typeName() : ClassName.OBJECT, component.name(),
+                    Modifier.PRIVATE);
+            TypeName consumerTypeName = isPrimitive ? consumerTypeFor(component.typeName())
+                    : ParameterizedTypeName.get(ClassName.get(Consumer.class), ClassName.OBJECT);
+            holderBuilder.addField(
+                    FieldSpec.builder(consumerTypeName, holderConsumerName(component), Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer("value -> $L = value", component.name()).build());
+        });
+
+        holderBuilder.addMethod(MethodSpec.methodBuilder("acquire").addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(holderType).addStatement("$T holder = $L.get()", holderType, holdersName)
+                .beginControlFlow("if (holder.$L)", inUseName)
+                .addComment("re-entrant call on this thread - fall back to a new holder")
+                .addStatement("return new $T()", holderType).endControlFlow()
+                .addStatement("holder.$L = true", inUseName).addStatement("return holder").build());
+
+        MethodSpec.Builder releaseBuilder = MethodSpec.methodBuilder("release").addModifiers(Modifier.PRIVATE);
+        recordComponents.stream().filter(component -> !component.typeName().isPrimitive())
+                .forEach(component -> releaseBuilder.addStatement("$L = null", component.name()));
+        releaseBuilder.addStatement("$L = false", inUseName);
+        holderBuilder.addMethod(releaseBuilder.build());
+
+        builder.addType(holderBuilder.build());
+    }
+
+    private static TypeName consumerTypeFor(TypeName primitiveType) {
+        if (primitiveType.equals(intType)) {
+            return intConsumerType;
+        }
+        if (primitiveType.equals(longType)) {
+            return longConsumerType;
+        }
+        if (primitiveType.equals(doubleType)) {
+            return doubleConsumerType;
+        }
+        throw new IllegalArgumentException("Unsupported primitive type: " + primitiveType);
+    }
+
+    private String holderConsumerName(RecordClassType component) {
+        return uniqueName("set" + capitalize(component.name()));
+    }
+
     private void addCodeWithoutBuilderForAccessors(CodeBlock.Builder codeBlockBuilder, String parameterName) {
         codeBlockBuilder.add("return new $T(", recordClassType.typeName());
         IntStream.range(0, recordComponents.size()).forEach(index -> {
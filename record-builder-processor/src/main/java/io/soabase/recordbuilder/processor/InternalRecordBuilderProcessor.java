@@ -22,9 +22,13 @@ import io.soabase.recordbuilder.processor.CollectionBuilderUtils.SingleItemsMeta
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
 import java.lang.annotation.ElementType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -62,9 +66,12 @@ class InternalRecordBuilderProcessor {
     private static final TypeName overrideType = TypeName.get(Override.class);
     private static final TypeName javaxValidType = ClassName.get("javax.validation", "Valid");
     private static final TypeName jakartaValidType = ClassName.get("jakarta.validation", "Valid");
+    private static final TypeName internerTypeName = ClassName.get("io.soabase.recordbuilder.runtime",
+            "RecordInterner");
     private static final TypeName validatorTypeName = ClassName.get("io.soabase.recordbuilder.validator",
             "RecordBuilderValidator");
     private static final TypeVariableName rType = TypeVariableName.get("R");
+    private static final String sortKeyStringMethodName = "__sortKeyString";
     private final Modifier constructorVisibilityModifier;
     private final Map<String, CodeBlock> initializers;
 
@@ -101,7 +108,7 @@ class InternalRecordBuilderProcessor {
         if (metaData.enableWither()) {
             addWithNestedClass();
         }
-        if (!metaData.beanClassName().isEmpty()) {
+        if (!metaData.beanClassName().isEmpty() && !isLean()) {
             addBeanNestedClass();
         }
         if (metaData.builderMode() != BuilderMode.STANDARD) {
@@ -122,17 +129,34 @@ class InternalRecordBuilderProcessor {
             addStaticDefaultBuilderMethod();
         }
         addStaticCopyBuilderMethod();
-        if (metaData.enableWither()) {
+        if (metaData.enableWither() && !isLean()) {
             addStaticFromWithMethod();
         }
+        if (metaData.addStaticWithers()) {
+            IntStream.range(0, recordComponents.size())
+                    .forEach(index -> add1StaticWithMethod(recordComponents.get(index), index));
+        }
         if (metaData.onceOnlyAssignment()) {
             addOnceOnlySupport();
         }
-        addStaticComponentsMethod();
+        if (!isLean()) {
+            addStaticComponentsMethod();
+        }
         addBuildMethod();
-        addToStringMethod();
-        addHashCodeMethod();
-        addEqualsMethod();
+        if (metaData.addInterning()) {
+            addInternMethods();
+        }
+        if (metaData.addHashedKey()) {
+            addHashedKeyMethods();
+        }
+        if (metaData.addComparator()) {
+            addComparatorMethods(recordFacade.element());
+        }
+        if (!isLean()) {
+            addToStringMethod();
+            addHashCodeMethod();
+            addEqualsMethod();
+        }
         IntStream.range(0, recordComponents.size()).forEach(index -> {
             RecordClassType component = recordComponents.get(index);
             add1Field(component);
@@ -226,10 +250,20 @@ class InternalRecordBuilderProcessor {
          *
          * private final boolean[] _onceOnlyCheck = new boolean[<number of record components>];
          */
-        FieldSpec onceOnlyField = FieldSpec
-                .builder(boolean[].class, metaData.onceOnlyAssignmentName(), Modifier.PRIVATE, Modifier.FINAL)
+        builder.addField(onceOnlyField());
+    }
+
+    private FieldSpec onceOnlyField() {
+        return FieldSpec.builder(boolean[].class, metaData.onceOnlyAssignmentName(), Modifier.PRIVATE, Modifier.FINAL)
                 .initializer(CodeBlock.of("new boolean[$L]", recordComponents.size())).build();
-        builder.addField(onceOnlyField);
+    }
+
+    private CodeBlock onceOnlyCheck(RecordClassType component, int componentIndex) {
+        return CodeBlock.builder().add("if ($L[$L]) {\n", metaData.onceOnlyAssignmentName(), componentIndex).indent()
+                .addStatement("throw new IllegalStateException(\"A value has already been set for: $L\")",
+                        component.name())
+                .unindent().add("}\n").addStatement("$L[$L] = true", metaData.onceOnlyAssignmentName(), componentIndex)
+                .build();
     }
 
     private boolean isRequiredStage(RecordClassType recordComponent) {
@@ -254,14 +288,23 @@ class InternalRecordBuilderProcessor {
         return !metaData.emptyDefaultForOptional() || !recordComponent.rawTypeName().equals(optionalType);
     }
 
-    private void addStagedBuilderClasses() {
+    private List<List<RecordClassType>> requiredStageGroups() {
         List<RecordClassType> filteredRecordComponents = recordComponents.stream().filter(this::isRequiredStage)
                 .toList();
+        int groupSize = Math.max(1, metaData.stagedBuilderGroupSize());
+        return IntStream.range(0, (filteredRecordComponents.size() + groupSize - 1) / groupSize)
+                .mapToObj(index -> filteredRecordComponents.subList(index * groupSize,
+                        Math.min(filteredRecordComponents.size(), (index + 1) * groupSize)))
+                .toList();
+    }
 
-        IntStream.range(0, filteredRecordComponents.size()).forEach(index -> {
-            Optional<RecordClassType> nextComponent = ((index + 1) < filteredRecordComponents.size())
-                    ? Optional.of(filteredRecordComponents.get(index + 1)) : Optional.empty();
-            add1StagedBuilderClass(filteredRecordComponents.get(index), nextComponent);
+    private void addStagedBuilderClasses() {
+        List<List<RecordClassType>> stageGroups = requiredStageGroups();
+
+        IntStream.range(0, stageGroups.size()).forEach(index -> {
+            Optional<List<RecordClassType>> nextGroup = ((index + 1) < stageGroups.size())
+                    ? Optional.of(stageGroups.get(index + 1)) : Optional.empty();
+            add1StagedBuilderClass(stageGroups.get(index), nextGroup);
         });
 
         /*
@@ -313,38 +356,147 @@ class InternalRecordBuilderProcessor {
         builder.addType(classBuilder.build());
     }
 
-    private void add1StagedBuilderClass(RecordClassType component, Optional<RecordClassType> nextComponent) {
+    private void add1StagedBuilderClass(List<RecordClassType> group, Optional<List<RecordClassType>> nextGroup) {
         /*
          * Adds a nested interface similar to:
          *
          * public class NameStage { AgeStage name(String name); }
+         *
+         * or, when stagedBuilderGroupSize is more than 1, similar to:
+         *
+         * public class NameAndAgeStage { CityStage nameAndAge(String name, int age); }
          */
-        var classBuilder = TypeSpec.interfaceBuilder(stagedBuilderName(component))
+        var component = group.get(0);
+        var componentNames = group.stream().map(groupComponent -> "{@code " + groupComponent.name() + "}")
+                .collect(Collectors.joining(", "));
+        var classBuilder = TypeSpec.interfaceBuilder(stagedBuilderName(group))
                 .addAnnotation(generatedRecordBuilderAnnotation)
-                .addJavadoc("Add staged builder to {@code $L} for component {@code $L}\n", recordClassType.name(),
-                        component.name())
+                .addJavadoc("Add staged builder to {@code $L} for $L $L\n", recordClassType.name(),
+                        (group.size() > 1) ? "components" : "component", componentNames)
                 .addModifiers(Modifier.PUBLIC).addTypeVariables(typeVariables);
         if (metaData.addClassRetainedGenerated()) {
             classBuilder.addAnnotation(recordBuilderGeneratedAnnotation);
         }
 
-        var returnType = nextComponent.map(this::stagedBuilderType)
-                .orElseGet(() -> stagedBuilderType(builderClassType));
-        var methodSpec = MethodSpec.methodBuilder(prefixedName(component, false))
-                .addAnnotation(generatedRecordBuilderAnnotation).returns(returnType.typeName())
-                .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT);
+        var methodSpec = stageMethod(group, nextGroup).addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT);
 
-        methodSpec.addJavadoc("Set a new value for the {@code $L} record component in the builder\n", component.name());
-        var parameterSpecBuilder = createParameterSpec(component, metaData.inheritComponentAnnotations(),
-                processingEnv);
-        addConstructorAnnotations(component, parameterSpecBuilder);
-        methodSpec.addParameter(parameterSpecBuilder.build());
+        if (group.size() > 1) {
+            methodSpec.addJavadoc("Set new values for the $L record components in the builder\n", componentNames);
+        } else {
+            methodSpec.addJavadoc("Set a new value for the {@code $L} record component in the builder\n",
+                    component.name());
+        }
 
         classBuilder.addMethod(methodSpec.build());
 
         builder.addType(classBuilder.build());
     }
 
+    private MethodSpec.Builder stageMethod(List<RecordClassType> group, Optional<List<RecordClassType>> nextGroup) {
+        var returnType = nextGroup.map(this::stagedBuilderType).orElseGet(() -> stagedBuilderType(builderClassType));
+        // a grouped stage is named for all of its components so that the order of the values is explicit at the
+        // call site - e.g. firstAndLast("f", "l")
+        var methodName = prefixedName(group.get(0), false) + group.stream().skip(1)
+                .map(groupComponent -> "And" + capitalize(groupComponent.name())).collect(Collectors.joining());
+        var methodSpec = MethodSpec.methodBuilder(methodName).addAnnotation(generatedRecordBuilderAnnotation)
+                .returns(returnType.typeName());
+        group.forEach(groupComponent -> {
+            var parameterSpecBuilder = createParameterSpec(groupComponent, metaData.inheritComponentAnnotations(),
+                    processingEnv);
+            addConstructorAnnotations(groupComponent, parameterSpecBuilder);
+            methodSpec.addParameter(parameterSpecBuilder.build());
+        });
+        return methodSpec;
+    }
+
+    private void addStagedClass(List<List<RecordClassType>> stageGroups) {
+        /*
+         * Adds static private class that implements every stage and holds the component values itself so that building
+         * a record allocates only the record. A builder is only created if the final stage's builder() is called.
+         * Similar to:
+         *
+         * private static final class _Staged implements NameStage, AgeStage, PersonBuilderStage { private String name;
+         * private int age;
+         *
+         * @Override public AgeStage name(String name) { this.name = name; return this; }
+         *
+         * @Override public PersonBuilderStage age(int age) { this.age = age; return this; }
+         *
+         * @Override public Person build() { return new Person(name, age); }
+         *
+         * @Override public PersonBuilder builder() { return new PersonBuilder(name, age); } }
+         */
+        var stagedClassBuilder = TypeSpec.classBuilder(metaData.stagedBuilderClassName())
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(generatedRecordBuilderAnnotation).addTypeVariables(typeVariables);
+        if (metaData.addClassRetainedGenerated()) {
+            stagedClassBuilder.addAnnotation(recordBuilderGeneratedAnnotation);
+        }
+        stageGroups.forEach(group -> stagedClassBuilder.addSuperinterface(stagedBuilderType(group).typeName()));
+        stagedClassBuilder.addSuperinterface(stagedBuilderType(builderClassType).typeName());
+
+        recordComponents.forEach(component -> stagedClassBuilder.addField(fieldSpec(component)));
+        boolean onceOnly = metaData.onceOnlyAssignment() && !recordComponents.isEmpty();
+        if (onceOnly) {
+            stagedClassBuilder.addField(onceOnlyField());
+        }
+        MethodSpec constructorSpec = MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE)
+                .addAnnotation(generatedRecordBuilderAnnotation).build();
+        stagedClassBuilder.addMethod(constructorSpec);
+
+        IntStream.range(0, stageGroups.size()).forEach(index -> {
+            var group = stageGroups.get(index);
+            Optional<List<RecordClassType>> nextGroup = ((index + 1) < stageGroups.size())
+                    ? Optional.of(stageGroups.get(index + 1)) : Optional.empty();
+            var methodSpec = stageMethod(group, nextGroup).addAnnotation(Override.class).addModifiers(Modifier.PUBLIC);
+            // same as the builder's setters
+            group.forEach(recordComponent -> {
+                if (onceOnly) {
+                    methodSpec.addCode(onceOnlyCheck(recordComponent, recordComponents.indexOf(recordComponent)));
+                }
+                if (collectionBuilderUtils.singleItemsMetaData(recordComponent, STANDARD_FOR_SETTER).isPresent()) {
+                    methodSpec.addStatement("this.$L = $L($L)", recordComponent.name(),
+                            collectionBuilderUtils.shimReference(recordComponent), recordComponent.name());
+                } else {
+                    methodSpec.addStatement("this.$L = $L", recordComponent.name(), recordComponent.name());
+                }
+            });
+            methodSpec.addStatement("return this");
+            stagedClassBuilder.addMethod(methodSpec.build());
+        });
+
+        var buildMethod = buildMethod().addAnnotation(Override.class).addCode(buildCodeBlock()).build();
+        stagedClassBuilder.addMethod(buildMethod);
+
+        var builderCodeBlock = CodeBlock.builder().add("$[");
+        if (onceOnly) {
+            builderCodeBlock.add("$T $L = ", builderClassType.typeName(), uniqueVarName);
+        } else {
+            builderCodeBlock.add("return ");
+        }
+        builderCodeBlock.add("new $T(", builderClassType.typeName());
+        IntStream.range(0, recordComponents.size()).forEach(index -> {
+            if (index > 0) {
+                builderCodeBlock.add(", ");
+            }
+            builderCodeBlock.add("$L", recordComponents.get(index).name());
+        });
+        builderCodeBlock.add(");\n$]");
+        if (onceOnly) {
+            // components that were set by the stages can't be set again via the builder
+            builderCodeBlock.addStatement("$T.arraycopy($L, 0, $L.$L, 0, $L)", System.class,
+                    metaData.onceOnlyAssignmentName(), uniqueVarName, metaData.onceOnlyAssignmentName(),
+                    recordComponents.size());
+            builderCodeBlock.addStatement("return $L", uniqueVarName);
+        }
+        var builderMethod = MethodSpec.methodBuilder(metaData.builderMethodName()).addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .returns(builderClassType.typeName()).addCode(builderCodeBlock.build()).build();
+        stagedClassBuilder.addMethod(builderMethod);
+
+        builder.addType(stagedClassBuilder.build());
+    }
+
     private void add1ConcreteOptionalSetterMethodToFinalStage(RecordClassType optionalComponent,
             TypeSpec.Builder classBuilder) {
         var optionalType = OptionalType.fromClassType(optionalComponent);
@@ -391,9 +543,17 @@ class InternalRecordBuilderProcessor {
         }
         recordComponents.forEach(component -> addNestedGetterMethod(classBuilder, component, component.name()));
         addWithBuilderMethod(classBuilder);
-        addWithSuppliedBuilderMethod(classBuilder);
-        IntStream.range(0, recordComponents.size())
-                .forEach(index -> add1WithMethod(classBuilder, recordComponents.get(index), index));
+        if (!isLean()) {
+            addWithSuppliedBuilderMethod(classBuilder);
+        }
+        Optional<String> compactWithHelperName = Optional.empty();
+        if ((metaData.compactWithersThreshold() > 0)
+                && (recordComponents.size() >= metaData.compactWithersThreshold())) {
+            compactWithHelperName = Optional.of(addCompactWithHelper(classBuilder));
+        }
+        for (int index = 0; index < recordComponents.size(); ++index) {
+            add1WithMethod(classBuilder, recordComponents.get(index), index, compactWithHelperName);
+        }
         if (metaData.addFunctionalMethodsToWith()) {
             classBuilder.addType(buildFunctionalInterface("Function", true))
                     .addType(buildFunctionalInterface("Consumer", false))
@@ -470,11 +630,44 @@ class InternalRecordBuilderProcessor {
         return alreadyExists ? getUniqueVarName(prefix + "_") : name;
     }
 
-    private void add1WithMethod(TypeSpec.Builder classBuilder, RecordClassType component, int index) {
+    private String addCompactWithHelper(TypeSpec.Builder classBuilder) {
+        /*
+         * Adds a private helper that creates a new record with one component replaced similar to:
+         *
+         * private MyRecord _with(int index, Object value) { return new MyRecord((index == 0) ? (String) value : name(),
+         * (index == 1) ? (int) value : age()); }
+         */
+        var helperName = disambiguatedName("_with");
+        var codeBlockBuilder = CodeBlock.builder().add("$[return new $T(", recordClassType.typeName());
+        IntStream.range(0, recordComponents.size()).forEach(index -> {
+            var component = recordComponents.get(index);
+            if (index > 0) {
+                codeBlockBuilder.add(",\n");
+            }
+            codeBlockBuilder.add("(index == $L) ? ($T) value : $L()", index, component.typeName(), component.name());
+        });
+        codeBlockBuilder.add(");\n$]");
+
+        var methodSpec = MethodSpec.methodBuilder(helperName).addAnnotation(generatedRecordBuilderAnnotation)
+                .addAnnotation(
+                        AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+                .addModifiers(Modifier.PRIVATE).addParameter(TypeName.INT, "index")
+                .addParameter(ClassName.OBJECT, "value").returns(recordClassType.typeName())
+                .addCode(codeBlockBuilder.build()).build();
+        classBuilder.addMethod(methodSpec);
+        return helperName;
+    }
+
+    private void add1WithMethod(TypeSpec.Builder classBuilder, RecordClassType component, int index,
+            Optional<String> compactWithHelperName) {
         /*
          * Adds a with method for the component similar to:
          *
          * default MyRecord withName(String name) { return new MyRecord(name, r.age()); }
+         *
+         * or, for compact withers:
+         *
+         * default MyRecord withName(String name) { return _with(0, name); }
          */
         var codeBlockBuilder = CodeBlock.builder();
         addNullCheckCodeBlock(codeBlockBuilder, index);
@@ -482,8 +675,13 @@ class InternalRecordBuilderProcessor {
         if (metaData.useValidationApi()) {
             codeBlockBuilder.add("$T.validate(", validatorTypeName);
         }
-        codeBlockBuilder.add("new $T(", recordClassType.typeName());
-        addComponentCallsAsArguments(index, codeBlockBuilder);
+        if (compactWithHelperName.isPresent()) {
+            codeBlockBuilder.add("$L($L, ", compactWithHelperName.get(), index);
+            collectionBuilderUtils.addShimCall(codeBlockBuilder, component);
+        } else {
+            codeBlockBuilder.add("new $T(", recordClassType.typeName());
+            addComponentCallsAsArguments(index, codeBlockBuilder);
+        }
         codeBlockBuilder.add(")");
         if (metaData.useValidationApi()) {
             codeBlockBuilder.add(")");
@@ -519,7 +717,45 @@ class InternalRecordBuilderProcessor {
         classBuilder.addMethod(methodSpec);
     }
 
+    private void add1StaticWithMethod(RecordClassType component, int index) {
+        /*
+         * Adds a static with method for the component similar to:
+         *
+         * public static MyRecord withName(MyRecord r, String name) { return new MyRecord(name, r.age()); }
+         */
+        var codeBlockBuilder = CodeBlock.builder();
+        addNullCheckCodeBlock(codeBlockBuilder, index);
+        codeBlockBuilder.add("$[return ");
+        if (metaData.useValidationApi()) {
+            codeBlockBuilder.add("$T.validate(", validatorTypeName);
+        }
+        codeBlockBuilder.add("new $T(", recordClassType.typeName());
+        addComponentCallsAsArguments(index, codeBlockBuilder, uniqueVarName + ".");
+        codeBlockBuilder.add(")");
+        if (metaData.useValidationApi()) {
+            codeBlockBuilder.add(")");
+        }
+        codeBlockBuilder.add(";$]");
+
+        var methodName = getWithMethodName(component, metaData.withClassMethodPrefix());
+        var parameterSpecBuilder = createParameterSpec(component, metaData.inheritComponentAnnotations(),
+                processingEnv);
+        addConstructorAnnotations(component, parameterSpecBuilder);
+        var methodSpec = MethodSpec.methodBuilder(methodName).addAnnotation(generatedRecordBuilderAnnotation)
+                .addJavadoc(
+                        "Return a new instance of {@code $L} copied from the given instance with a new value for {@code $L}\n",
+                        recordClassType.name(), component.name())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addTypeVariables(typeVariables)
+                .addParameter(recordClassType.typeName(), uniqueVarName).addParameter(parameterSpecBuilder.build())
+                .addCode(codeBlockBuilder.build()).returns(recordClassType.typeName()).build();
+        builder.addMethod(methodSpec);
+    }
+
     private void addComponentCallsAsArguments(int index, CodeBlock.Builder codeBlockBuilder) {
+        addComponentCallsAsArguments(index, codeBlockBuilder, "");
+    }
+
+    private void addComponentCallsAsArguments(int index, CodeBlock.Builder codeBlockBuilder, String receiver) {
         IntStream.range(0, recordComponents.size()).forEach(parameterIndex -> {
             if (parameterIndex > 0) {
                 codeBlockBuilder.add(", ");
@@ -528,7 +764,7 @@ class InternalRecordBuilderProcessor {
             if (parameterIndex == index) {
                 collectionBuilderUtils.addShimCall(codeBlockBuilder, parameterComponent);
             } else {
-                codeBlockBuilder.add("$L()", parameterComponent.name());
+                codeBlockBuilder.add("$L$L()", receiver, parameterComponent.name());
             }
         });
     }
@@ -699,6 +935,375 @@ class InternalRecordBuilderProcessor {
         builder.addMethod(methodSpec);
     }
 
+    private void addInternMethods() {
+        /*
+         * Adds a canonicalizing pool and methods similar to:
+         *
+         * private static final RecordInterner __interner = new RecordInterner();
+         *
+         * public static MyRecord intern(MyRecord record) { return __interner.intern(record); }
+         *
+         * public MyRecord buildInterned() { return intern(build()); }
+         */
+        var internerName = disambiguatedName("__interner");
+        var fieldSpec = FieldSpec
+                .builder(internerTypeName, internerName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(generatedRecordBuilderAnnotation).initializer("new $T()", internerTypeName).build();
+        builder.addField(fieldSpec);
+
+        var internMethod = MethodSpec.methodBuilder("intern")
+                .addJavadoc("Return the canonical instance that is equal to the given record\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .addTypeVariables(typeVariables).addParameter(recordClassType.typeName(), "record")
+                .returns(recordClassType.typeName()).addStatement("return $L.intern(record)", internerName).build();
+        builder.addMethod(internMethod);
+
+        var buildInternedMethod = MethodSpec.methodBuilder(metaData.buildMethodName() + "Interned").addJavadoc(
+                "Return the canonical record instance with all fields set to the current values in this builder\n")
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .returns(recordClassType.typeName()).addStatement("return intern($L())", metaData.buildMethodName())
+                .build();
+        builder.addMethod(buildInternedMethod);
+    }
+
+    private void addHashedKeyMethods() {
+        /*
+         * Adds a map key wrapper with a precomputed hash and methods similar to:
+         *
+         * public static final class Key { private final MyRecord record; private final int hash; ... }
+         *
+         * public static Key key(MyRecord record) { return new Key(record); }
+         *
+         * public Key buildKey() { return key(build()); }
+         */
+        addHashedKeyClass();
+
+        TypeName keyTypeName = hashedKeyTypeName(typeVariables);
+        var keyMethod = MethodSpec.methodBuilder("key")
+                .addJavadoc("Return a map key for the given record. The record's hash code is computed once.\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .addTypeVariables(typeVariables).addParameter(recordClassType.typeName(), "record").returns(keyTypeName)
+                .addStatement("return new $L$L(record)", metaData.hashedKeyClassName(),
+                        typeVariables.isEmpty() ? "" : "<>")
+                .build();
+        builder.addMethod(keyMethod);
+
+        var buildKeyMethod = MethodSpec.methodBuilder(metaData.buildMethodName() + "Key")
+                .addJavadoc(
+                        "Return a map key for a new record with all fields set to the current values in this builder\n")
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation).returns(keyTypeName)
+                .addStatement("return key($L())", metaData.buildMethodName()).build();
+        builder.addMethod(buildKeyMethod);
+    }
+
+    private void addHashedKeyClass() {
+        /*
+         * Adds static class that wraps a record and its precomputed hash code
+         *
+         * public static final class Key { private final MyRecord record; private final int hash;
+         *
+         * public MyRecord record() { return record; }
+         *
+         * @Override public int hashCode() { return hash; }
+         *
+         * @Override public boolean equals(Object o) { return (this == o) || ((o instanceof Key other) && (hash ==
+         * other.hash) && record.equals(other.record)); } }
+         */
+        var keyClassBuilder = TypeSpec.classBuilder(metaData.hashedKeyClassName())
+                .addJavadoc("Wraps a record and its precomputed hash code for use as a hash map key\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(generatedRecordBuilderAnnotation).addTypeVariables(typeVariables);
+        if (metaData.addClassRetainedGenerated()) {
+            keyClassBuilder.addAnnotation(recordBuilderGeneratedAnnotation);
+        }
+
+        keyClassBuilder.addField(recordClassType.typeName(), "record", Modifier.PRIVATE, Modifier.FINAL);
+        keyClassBuilder.addField(TypeName.INT, "hash", Modifier.PRIVATE, Modifier.FINAL);
+        MethodSpec constructorSpec = MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE)
+                .addAnnotation(generatedRecordBuilderAnnotation).addParameter(recordClassType.typeName(), "record")
+                .addStatement("this.record = $T.requireNonNull(record, $S)", Objects.class, "record cannot be null")
+                .addStatement("this.hash = record.hashCode()").build();
+        keyClassBuilder.addMethod(constructorSpec);
+
+        keyClassBuilder.addMethod(MethodSpec.methodBuilder("record").addJavadoc("Return the wrapped record\n")
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .returns(recordClassType.typeName()).addStatement("return record").build());
+
+        keyClassBuilder.addMethod(MethodSpec.methodBuilder("hashCode").addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation).returns(TypeName.INT)
+                .addStatement("return hash").build());
+
+        TypeName wildcardKeyTypeName = hashedKeyTypeName(
+                typeVariables.stream().map(__ -> WildcardTypeName.subtypeOf(Object.class)).toList());
+        keyClassBuilder.addMethod(MethodSpec.methodBuilder("equals").addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation).returns(TypeName.BOOLEAN)
+                .addParameter(Object.class, "o")
+                .addStatement(
+                        "return (this == o) || ((o instanceof $T other) && (hash == other.hash) && record.equals(other.record))",
+                        wildcardKeyTypeName)
+                .build());
+
+        keyClassBuilder.addMethod(MethodSpec.methodBuilder("toString").addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).addAnnotation(generatedRecordBuilderAnnotation).returns(String.class)
+                .addStatement("return $S + record + $S", metaData.hashedKeyClassName() + "[", "]").build());
+
+        builder.addType(keyClassBuilder.build());
+    }
+
+    private TypeName hashedKeyTypeName(List<? extends TypeName> typeArguments) {
+        ClassName rawTypeName = ClassName.get(packageName, builderClassType.name(), metaData.hashedKeyClassName());
+        if (typeArguments.isEmpty()) {
+            return rawTypeName;
+        }
+        return ParameterizedTypeName.get(rawTypeName, typeArguments.toArray(new TypeName[] {}));
+    }
+
+    private enum SortType {
+        BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, ENUM, COMPARABLE, NONE;
+
+        boolean isEncodable() {
+            return (this != COMPARABLE) && (this != NONE);
+        }
+    }
+
+    private record SortComponent(RecordClassType component, SortType sortType) {
+    }
+
+    private void addComparatorMethods(Element element) {
+        /*
+         * Adds a comparator and a binary sort key encoder similar to:
+         *
+         * public static int compare(MyRecord a, MyRecord b) { int result = Integer.compare(a.i(), b.i()); if (result !=
+         * 0) { return result; } ... }
+         *
+         * public static Comparator<MyRecord> comparator() { return MyRecordBuilder::compare; }
+         *
+         * public static void sortKey(MyRecord record, ByteBuffer buffer) { ... }
+         */
+        Optional<List<SortComponent>> sortComponents = sortComponents(element);
+        if (sortComponents.isEmpty()) {
+            return;
+        }
+
+        addCompareMethod(sortComponents.get());
+
+        var comparatorType = ParameterizedTypeName.get(ClassName.get(Comparator.class), recordClassType.typeName());
+        var comparatorMethod = MethodSpec.methodBuilder("comparator")
+                .addJavadoc("Return a comparator that orders records by $L\n",
+                        (metaData.comparatorComponents().length > 0) ? "the configured components"
+                                : "their comparable components in declaration order")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .addTypeVariables(typeVariables).returns(comparatorType)
+                .addStatement("return $L::compare", builderClassType.name()).build();
+        builder.addMethod(comparatorMethod);
+
+        addSortKeyMethod(sortComponents.get());
+    }
+
+    private Optional<List<SortComponent>> sortComponents(Element element) {
+        // the facade's components, not the element, as the element isn't a record for deconstructors
+        Map<String, SortComponent> componentsByName = new LinkedHashMap<>();
+        recordComponents.forEach(component -> componentsByName.put(component.name(),
+                new SortComponent(component, sortType(component.typeMirror()))));
+
+        if (metaData.comparatorComponents().length == 0) {
+            var sortComponents = componentsByName.values().stream()
+                    .filter(sortComponent -> sortComponent.sortType() != SortType.NONE).collect(Collectors.toList());
+            if (sortComponents.isEmpty()) {
+                processingEnv.getMessager().printMessage(ERROR,
+                        "addComparator is set but the record has no comparable components", element);
+                return Optional.empty();
+            }
+            return Optional.of(sortComponents);
+        }
+
+        List<SortComponent> sortComponents = new ArrayList<>();
+        for (String name : metaData.comparatorComponents()) {
+            var sortComponent = componentsByName.get(name);
+            if (sortComponent == null) {
+                processingEnv.getMessager().printMessage(ERROR,
+                        "comparatorComponents contains \"%s\" which is not a record component".formatted(name),
+                        element);
+                return Optional.empty();
+            }
+            if (sortComponent.sortType() == SortType.NONE) {
+                processingEnv.getMessager().printMessage(ERROR,
+                        "comparatorComponents contains \"%s\" which is not primitive or Comparable".formatted(name),
+                        element);
+                return Optional.empty();
+            }
+            sortComponents.add(sortComponent);
+        }
+        return Optional.of(sortComponents);
+    }
+
+    private SortType sortType(TypeMirror type) {
+        switch (type.getKind()) {
+        case BOOLEAN:
+            return SortType.BOOLEAN;
+        case BYTE:
+            return SortType.BYTE;
+        case SHORT:
+            return SortType.SHORT;
+        case CHAR:
+            return SortType.CHAR;
+        case INT:
+            return SortType.INT;
+        case LONG:
+            return SortType.LONG;
+        case FLOAT:
+            return SortType.FLOAT;
+        case DOUBLE:
+            return SortType.DOUBLE;
+        default:
+            break;
+        }
+
+        var typeUtils = processingEnv.getTypeUtils();
+        var typeElement = typeUtils.asElement(type);
+        if ((typeElement != null) && (typeElement.getKind() == ElementKind.ENUM)) {
+            return SortType.ENUM;
+        }
+        if ((typeElement instanceof TypeElement declared)
+                && declared.getQualifiedName().contentEquals(String.class.getName())) {
+            return SortType.STRING;
+        }
+        var comparableElement = processingEnv.getElementUtils().getTypeElement(Comparable.class.getName());
+        if (typeUtils.isAssignable(typeUtils.erasure(type), typeUtils.erasure(comparableElement.asType()))) {
+            return SortType.COMPARABLE;
+        }
+        return SortType.NONE;
+    }
+
+    private void addCompareMethod(List<SortComponent> sortComponents) {
+        var codeBuilder = CodeBlock.builder();
+        IntStream.range(0, sortComponents.size()).forEach(index -> {
+            var sortComponent = sortComponents.get(index);
+            var accessor = sortComponent.component().accessorName();
+            if (index > 0) {
+                codeBuilder.beginControlFlow("if (result != 0)").addStatement("return result").endControlFlow();
+            }
+            codeBuilder.add("$[$L", (index == 0) ? "int result = " : "result = ");
+            switch (sortComponent.sortType()) {
+            case BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE -> codeBuilder.add("$T.compare(a.$L(), b.$L())",
+                    sortComponent.component().typeName().box(), accessor, accessor);
+            default -> codeBuilder.add(
+                    "(a.$L() == b.$L()) ? 0 : (a.$L() == null) ? -1 : (b.$L() == null) ? 1 : a.$L().compareTo(b.$L())",
+                    accessor, accessor, accessor, accessor, accessor, accessor);
+            }
+            codeBuilder.add(";\n$]");
+        });
+        codeBuilder.addStatement("return result");
+
+        var methodSpec = MethodSpec.methodBuilder("compare").addJavadoc(
+                "Compare two records component by component. Primitives are compared without boxing and nulls sort first.\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
+                .addTypeVariables(typeVariables).addParameter(recordClassType.typeName(), "a")
+                .addParameter(recordClassType.typeName(), "b").returns(TypeName.INT).addCode(codeBuilder.build());
+        if (sortComponents.stream().anyMatch(sortComponent -> sortComponent.sortType() == SortType.COMPARABLE)) {
+            methodSpec.addAnnotation(
+                    AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+        }
+        builder.addMethod(methodSpec.build());
+    }
+
+    private void addSortKeyMethod(List<SortComponent> sortComponents) {
+        var encodable = sortComponents.stream().takeWhile(sortComponent -> sortComponent.sortType().isEncodable())
+                .collect(Collectors.toList());
+        if (encodable.isEmpty()) {
+            // the first comparator component cannot be encoded so a key would be empty
+            return;
+        }
+
+        var codeBuilder = CodeBlock.builder();
+        codeBuilder.addStatement("$T order = buffer.order()", ByteOrder.class);
+        codeBuilder.beginControlFlow("try");
+        codeBuilder.addStatement("buffer.order($T.BIG_ENDIAN)", ByteOrder.class);
+        encodable.forEach(sortComponent -> {
+            var accessor = sortComponent.component().accessorName();
+            switch (sortComponent.sortType()) {
+            case BOOLEAN -> codeBuilder.addStatement("buffer.put(record.$L() ? (byte) 1 : (byte) 0)", accessor);
+            case BYTE -> codeBuilder.addStatement("buffer.put((byte) (record.$L() ^ $T.MIN_VALUE))", accessor,
+                    Byte.class);
+            case SHORT -> codeBuilder.addStatement("buffer.putShort((short) (record.$L() ^ $T.MIN_VALUE))", accessor,
+                    Short.class);
+            case CHAR -> codeBuilder.addStatement("buffer.putChar(record.$L())", accessor);
+            case INT -> codeBuilder.addStatement("buffer.putInt(record.$L() ^ $T.MIN_VALUE)", accessor, Integer.class);
+            case LONG -> codeBuilder.addStatement("buffer.putLong(record.$L() ^ $T.MIN_VALUE)", accessor, Long.class);
+            case FLOAT -> {
+                // negative values have all bits flipped, positive values only the sign bit
+                var bitsName = sortComponent.component().name() + "Bits";
+                codeBuilder.addStatement("int $L = $T.floatToIntBits(record.$L())", bitsName, Float.class, accessor);
+                codeBuilder.addStatement("buffer.putInt($L ^ (($L >> 31) | $T.MIN_VALUE))", bitsName, bitsName,
+                        Integer.class);
+            }
+            case DOUBLE -> {
+                var bitsName = sortComponent.component().name() + "Bits";
+                codeBuilder.addStatement("long $L = $T.doubleToLongBits(record.$L())", bitsName, Double.class,
+                        accessor);
+                codeBuilder.addStatement("buffer.putLong($L ^ (($L >> 63) | $T.MIN_VALUE))", bitsName, bitsName,
+                        Long.class);
+            }
+            case STRING, ENUM -> {
+                codeBuilder.beginControlFlow("if (record.$L() == null)", accessor);
+                codeBuilder.addStatement("buffer.put((byte) 0)");
+                codeBuilder.nextControlFlow("else");
+                codeBuilder.addStatement("buffer.put((byte) 1)");
+                if (sortComponent.sortType() == SortType.ENUM) {
+                    codeBuilder.addStatement("buffer.putInt(record.$L().ordinal())", accessor);
+                } else {
+                    codeBuilder.addStatement("$L(record.$L(), buffer)", sortKeyStringMethodName, accessor);
+                }
+                codeBuilder.endControlFlow();
+            }
+            default -> throw new IllegalStateException("Unexpected sort type: " + sortComponent.sortType());
+            }
+        });
+        codeBuilder.nextControlFlow("finally");
+        codeBuilder.addStatement("buffer.order(order)");
+        codeBuilder.endControlFlow();
+
+        var encodedNames = encodable.stream().map(sortComponent -> sortComponent.component().name())
+                .collect(Collectors.joining(", "));
+        var methodSpec = MethodSpec.methodBuilder("sortKey").addJavadoc("""
+                Write a binary sort key for the given record into the buffer. Comparing keys as unsigned bytes orders
+                records the same as {@code compare()}. Only the leading comparator components that are primitives,
+                Strings or enums are encoded. Records with equal keys must be tie-broken with {@code compare()} if any
+                comparator components are not encoded. The buffer's byte order is not changed.
+                <p>
+                Encoded components: $L
+                """, encodedNames).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addAnnotation(generatedRecordBuilderAnnotation).addTypeVariables(typeVariables)
+                .addParameter(recordClassType.typeName(), "record").addParameter(ByteBuffer.class, "buffer")
+                .addCode(codeBuilder.build()).build();
+        builder.addMethod(methodSpec);
+
+        if (encodable.stream().anyMatch(sortComponent -> sortComponent.sortType() == SortType.STRING)) {
+            /*
+             * Chars are written big-endian so that byte order matches String.compareTo(). A NUL char is written as 0x00
+             * 0x00 0x01 and the string is terminated with 0x00 0x00 0x00 so that a prefix sorts before any longer
+             * string.
+             */
+            var stringMethod = MethodSpec.methodBuilder(sortKeyStringMethodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
+                    .addParameter(String.class, "value").addParameter(ByteBuffer.class, "buffer")
+                    .beginControlFlow("for (int i = 0, length = value.length(); i < length; ++i)")
+                    .addStatement("char c = value.charAt(i)").addStatement("buffer.putChar(c)")
+                    .beginControlFlow("if (c == 0)").addStatement("buffer.put((byte) 1)").endControlFlow()
+                    .endControlFlow().addStatement("buffer.putChar((char) 0)").addStatement("buffer.put((byte) 0)")
+                    .build();
+            builder.addMethod(stringMethod);
+        }
+    }
+
+    private String disambiguatedName(String baseName) {
+        var name = baseName;
+        while (recordComponents.stream().map(ClassType::name).anyMatch(name::equals)) {
+            name = "_" + name;
+        }
+        return name;
+    }
+
     private MethodSpec.Builder buildMethod() {
         return MethodSpec.methodBuilder(metaData.buildMethodName())
                 .addJavadoc("Return a new record instance with all fields set to the current values in this builder\n")
@@ -848,29 +1453,22 @@ class InternalRecordBuilderProcessor {
         /*
          * Adds the staged builder method similar to:
          *
-         * public static NameStage stagedBuilder() { return name -> age -> () -> new PersonBuilder(name, age).build(); }
+         * public static NameStage stagedBuilder() { return new _Staged(); }
          */
 
-        List<RecordClassType> filteredRecordComponents = recordComponents.stream().filter(this::isRequiredStage)
-                .toList();
+        List<List<RecordClassType>> stageGroups = requiredStageGroups();
 
-        var codeBlock = CodeBlock.builder();
-        codeBlock.addStatement("$T $L = new $T()", builderClassType.typeName(), uniqueVarName,
-                builderClassType.typeName());
-        codeBlock.add("return ");
-        filteredRecordComponents.forEach(recordComponent -> codeBlock.add("$L -> {\n", recordComponent.name()).indent()
-                .addStatement("$L.$L($L)", uniqueVarName, recordComponent.name(), recordComponent.name())
-                .add("return "));
-        codeBlock.addStatement("() -> $L", uniqueVarName);
-        IntStream.range(0, filteredRecordComponents.size()).forEach(__ -> codeBlock.unindent().addStatement("}"));
+        addStagedClass(stageGroups);
 
-        var returnType = stagedBuilderType(
-                filteredRecordComponents.isEmpty() ? builderClassType : filteredRecordComponents.get(0));
+        var returnType = stageGroups.isEmpty() ? stagedBuilderType(builderClassType)
+                : stagedBuilderType(stageGroups.get(0));
 
         var methodSpec = MethodSpec.methodBuilder(builderMethodName)
                 .addJavadoc("Return the first stage of a staged builder\n")
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC).addAnnotation(generatedRecordBuilderAnnotation)
-                .addTypeVariables(typeVariables).returns(returnType.typeName()).addCode(codeBlock.build()).build();
+                .addTypeVariables(typeVariables).returns(returnType.typeName()).addStatement("return new $L$L()",
+                        metaData.stagedBuilderClassName(), typeVariables.isEmpty() ? "" : "<>")
+                .build();
         builder.addMethod(methodSpec);
     }
 
@@ -907,6 +1505,10 @@ class InternalRecordBuilderProcessor {
          *
          * private T p;
          */
+        builder.addField(fieldSpec(component));
+    }
+
+    private FieldSpec fieldSpec(ClassType component) {
         var fieldSpecBuilder = FieldSpec.builder(component.typeName(), component.name(), Modifier.PRIVATE);
 
         CodeBlock initializer = initializers.get(component.name());
@@ -919,8 +1521,7 @@ class InternalRecordBuilderProcessor {
                 fieldSpecBuilder.initializer(codeBlock);
             }
         }
-
-        builder.addField(fieldSpecBuilder.build());
+        return fieldSpecBuilder.build();
     }
 
     private void addNestedGetterMethod(TypeSpec.Builder classBuilder, RecordClassType component, String methodName) {
@@ -992,17 +1593,23 @@ class InternalRecordBuilderProcessor {
          *
          * public T addP(Iterable<? extends Map.Entry<K, V> i) { this.p = __ensureMapMutable(p); i.forEach(this.p::put);
          * return this; }
+         *
+         * public T addP(Map<? extends K, ? extends V> i) { if (this.p == null) { this.p = new _MutableMap<>(i); return
+         * this; } this.p = __ensureMapMutable(p); this.p.putAll(i); return this; }
          */
-        for (var i = 0; i < 3; ++i) {
+        for (var i = 0; i < 4; ++i) {
+            if (isLean() && ((i == 1) || (i == 2))) {
+                // Stream and Iterable adders
+                continue;
+            }
             var codeBlockBuilder = CodeBlock.builder();
-            if (collectionBuilderUtils.isImmutableCollection(component)) {
-                codeBlockBuilder.addStatement("this.$L = $L($L)", component.name(),
-                        collectionBuilderUtils.mutableMakerName(component), component.name());
-            } else {
+            if (i == 3) {
                 codeBlockBuilder.beginControlFlow("if (this.$L == null)", component.name())
-                        .addStatement("this.$L = new $T<>()", component.name(), meta.singleItemCollectionClass())
-                        .endControlFlow();
+                        .addStatement("this.$L = new $T<>(i)", component.name(),
+                                copyingCollectionClass(meta, component))
+                        .addStatement("return this").endControlFlow();
             }
+            addEnsureCollectionMutable(meta, component, codeBlockBuilder);
             var methodSpecBuilder = MethodSpec
                     .methodBuilder(metaData.singleItemBuilderPrefix() + capitalize(component.name()))
                     .addJavadoc("Add to the internally allocated {@code HashMap} for {@code $L}\n", component.name())
@@ -1012,6 +1619,12 @@ class InternalRecordBuilderProcessor {
                 methodSpecBuilder.addParameter(meta.typeArguments().get(0), "key");
                 methodSpecBuilder.addParameter(meta.typeArguments().get(1), "value");
                 codeBlockBuilder.addStatement("this.$L.put(key, value)", component.name());
+            } else if (i == 3) {
+                var mapType = ParameterizedTypeName.get(ClassName.get(Map.class),
+                        WildcardTypeName.subtypeOf(meta.typeArguments().get(0)),
+                        WildcardTypeName.subtypeOf(meta.typeArguments().get(1)));
+                methodSpecBuilder.addParameter(mapType, "i");
+                codeBlockBuilder.addStatement("this.$L.putAll(i)", component.name());
             } else {
                 var parameterClass = ClassName.get((i == 1) ? Stream.class : Iterable.class);
                 var entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
@@ -1038,30 +1651,47 @@ class InternalRecordBuilderProcessor {
          * public T addP(Stream<? extends I> i) { this.list = __ensureListMutable(list); this.p.addAll(i); return this;
          * }
          *
-         * public T addP(Iterable<? extends I> i) { this.list = __ensureListMutable(list); this.p.addAll(i); return
-         * this; }
+         * public T addP(Iterable<? extends I> i) { if ((this.p == null) && (i instanceof Collection<? extends I>
+         * collection)) { this.p = new _MutableList<>(collection); return this; } this.list = __ensureListMutable(list);
+         * if (i instanceof Collection<? extends I> collection) { this.p.addAll(collection); } else {
+         * i.forEach(this.p::add); } return this; }
          */
         for (var i = 0; i < 3; ++i) {
+            if (isLean() && (i == 1)) {
+                // Stream adder
+                continue;
+            }
             var addClockBlock = CodeBlock.builder();
             TypeName parameter;
             if (i == 0) {
                 addClockBlock.addStatement("this.$L.add(i)", component.name());
                 parameter = meta.typeArguments().get(0);
             } else {
-                addClockBlock.addStatement("i.forEach(this.$L::add)", component.name());
                 var parameterClass = ClassName.get((i == 1) ? Stream.class : Iterable.class);
                 parameter = ParameterizedTypeName.get(parameterClass,
                         WildcardTypeName.subtypeOf(meta.typeArguments().get(0)));
+                if (i == 2) {
+                    var collectionType = ParameterizedTypeName.get(ClassName.get(Collection.class),
+                            WildcardTypeName.subtypeOf(meta.typeArguments().get(0)));
+                    addClockBlock.beginControlFlow("if (i instanceof $T collection)", collectionType)
+                            .addStatement("this.$L.addAll(collection)", component.name()).nextControlFlow("else")
+                            .addStatement("i.forEach(this.$L::add)", component.name()).endControlFlow();
+                } else {
+                    addClockBlock.addStatement("i.forEach(this.$L::add)", component.name());
+                }
             }
             var codeBlockBuilder = CodeBlock.builder();
-            if (collectionBuilderUtils.isImmutableCollection(component)) {
-                codeBlockBuilder.addStatement("this.$L = $L($L)", component.name(),
-                        collectionBuilderUtils.mutableMakerName(component), component.name());
-            } else {
-                codeBlockBuilder.beginControlFlow("if (this.$L == null)", component.name())
-                        .addStatement("this.$L = new $T<>()", component.name(), meta.singleItemCollectionClass())
-                        .endControlFlow();
+            if (i == 2) {
+                var collectionType = ParameterizedTypeName.get(ClassName.get(Collection.class),
+                        WildcardTypeName.subtypeOf(meta.typeArguments().get(0)));
+                codeBlockBuilder
+                        .beginControlFlow("if ((this.$L == null) && (i instanceof $T collection))", component.name(),
+                                collectionType)
+                        .addStatement("this.$L = new $T<>(collection)", component.name(),
+                                copyingCollectionClass(meta, component))
+                        .addStatement("return this").endControlFlow();
             }
+            addEnsureCollectionMutable(meta, component, codeBlockBuilder);
             codeBlockBuilder.add(addClockBlock.build()).addStatement("return this");
             var methodSpecBuilder = MethodSpec
                     .methodBuilder(metaData.singleItemBuilderPrefix() + capitalize(component.name()))
@@ -1074,6 +1704,26 @@ class InternalRecordBuilderProcessor {
         }
     }
 
+    private void addEnsureCollectionMutable(SingleItemsMetaData meta, RecordClassType component,
+            CodeBlock.Builder codeBlockBuilder) {
+        if (collectionBuilderUtils.isImmutableCollection(component)) {
+            codeBlockBuilder.addStatement("this.$L = $L($L)", component.name(),
+                    collectionBuilderUtils.mutableMakerReference(component), component.name());
+        } else {
+            codeBlockBuilder.beginControlFlow("if (this.$L == null)", component.name())
+                    .addStatement("this.$L = new $T<>()", component.name(), meta.singleItemCollectionClass())
+                    .endControlFlow();
+        }
+    }
+
+    private TypeName copyingCollectionClass(SingleItemsMetaData meta, RecordClassType component) {
+        // when immutable collections are used, the builder must hold the internal mutable subclass so that
+        // __ensureXxxMutable() recognizes it as already copied
+        return collectionBuilderUtils.isImmutableCollection(component)
+                ? collectionBuilderUtils.mutableCollectionTypeName(component)
+                : ClassName.get(meta.singleItemCollectionClass());
+    }
+
     private void add1GetterMethod(RecordClassType component) {
         /*
          * For a single record component, add a getter similar to:
@@ -1113,19 +1763,13 @@ class InternalRecordBuilderProcessor {
                 .addAnnotation(generatedRecordBuilderAnnotation).returns(builderClassType.typeName());
 
         if (metaData.onceOnlyAssignment()) {
-            var onceOnlyCheck = CodeBlock.builder()
-                    .add("if ($L[$L]) {\n", metaData.onceOnlyAssignmentName(), componentIndex).indent()
-                    .addStatement("throw new IllegalStateException(\"A value has already been set for: $L\")",
-                            component.name())
-                    .unindent().add("}\n")
-                    .addStatement("$L[$L] = true", metaData.onceOnlyAssignmentName(), componentIndex).build();
-            methodSpec.addCode(onceOnlyCheck);
+            methodSpec.addCode(onceOnlyCheck(component, componentIndex));
         }
 
         var collectionMetaData = collectionBuilderUtils.singleItemsMetaData(component, STANDARD_FOR_SETTER);
         var parameterSpecBuilder = collectionMetaData.map(meta -> {
             CodeBlock.Builder codeSpec = CodeBlock.builder();
-            codeSpec.addStatement("this.$L = $L($L)", component.name(), collectionBuilderUtils.shimName(component),
+            codeSpec.addStatement("this.$L = $L($L)", component.name(), collectionBuilderUtils.shimReference(component),
                     component.name());
             methodSpec.addJavadoc(
                     "Re-create the internally allocated {@code $T} for {@code $L} by copying the argument\n",
@@ -1246,11 +1890,24 @@ class InternalRecordBuilderProcessor {
         return prefixer.apply(metaData.setterPrefix(), component.name());
     }
 
+    private boolean isLean() {
+        return metaData.generationProfile() == RecordBuilder.GenerationProfile.LEAN;
+    }
+
     private String stagedBuilderName(ClassType component) {
         return capitalize(component.name()) + metaData.stagedBuilderMethodSuffix();
     }
 
+    private String stagedBuilderName(List<RecordClassType> group) {
+        return group.stream().map(groupComponent -> capitalize(groupComponent.name()))
+                .collect(Collectors.joining("And")) + metaData.stagedBuilderMethodSuffix();
+    }
+
     private ClassType stagedBuilderType(ClassType component) {
         return getClassTypeFromNames(ClassName.get("", stagedBuilderName(component)), typeVariables);
     }
+
+    private ClassType stagedBuilderType(List<RecordClassType> group) {
+        return getClassTypeFromNames(ClassName.get("", stagedBuilderName(group)), typeVariables);
+    }
 }
@@ -25,6 +25,7 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -65,9 +66,10 @@ class InternalRecordInterfaceProcessor {
         }
 
         var actualPackage = ElementUtils.getPackageName(iface);
-        addVisibility(builder, actualPackage.equals(packageName), iface.getModifiers());
+        boolean isPublic = addVisibility(builder, actualPackage.equals(packageName), iface.getModifiers());
 
-        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder();
+        MethodSpec.Builder constructorBuilder = metaData.cacheHashCode() ? MethodSpec.compactConstructorBuilder()
+                : MethodSpec.constructorBuilder();
         recordComponents.forEach(component -> {
             String name = component.alternateName.orElseGet(() -> component.element.getSimpleName().toString());
             ParameterSpec parameterSpec = ParameterSpec.builder(ClassName.get(component.element.getReturnType()), name)
@@ -76,6 +78,10 @@ class InternalRecordInterfaceProcessor {
             builder.addTypeVariables(component.element.getTypeParameters().stream().map(TypeVariableName::get)
                     .collect(Collectors.toList()));
         });
+        // interfaces without components are reported as invalid by the caller (see isValid())
+        if (metaData.cacheHashCode() && !recordComponents.isEmpty()) {
+            addCachedHashCode(builder, constructorBuilder, metaData.cachedHashCodeName(), typeVariables, isPublic);
+        }
         builder.recordConstructor(constructorBuilder.build());
 
         if (addRecordBuilder) {
@@ -116,17 +122,19 @@ class InternalRecordInterfaceProcessor {
         return recordClassType;
     }
 
-    private void addVisibility(TypeSpec.Builder builder, boolean builderIsInRecordPackage, Set<Modifier> modifiers) {
+    private boolean addVisibility(TypeSpec.Builder builder, boolean builderIsInRecordPackage, Set<Modifier> modifiers) {
         if (builderIsInRecordPackage) {
             if (modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PRIVATE)
                     || modifiers.contains(Modifier.PROTECTED)) {
                 builder.addModifiers(Modifier.PUBLIC); // builders are top level classes - can only be public or
                 // package-private
+                return true;
             }
             // is package-private
-        } else {
-            builder.addModifiers(Modifier.PUBLIC);
+            return false;
         }
+        builder.addModifiers(Modifier.PUBLIC);
+        return true;
     }
 
     private void addAlternateMethods(TypeSpec.Builder builder, List<Component> recordComponents) {
@@ -139,6 +147,76 @@ class InternalRecordInterfaceProcessor {
         });
     }
 
+    private void addCachedHashCode(TypeSpec.Builder builder, MethodSpec.Builder constructorBuilder, String hashName,
+            List<TypeVariableName> typeVariables, boolean isPublic) {
+        /*
+         * Records cannot have instance fields other than components so the hash is held in an extra component. The
+         * compact constructor always overwrites whatever value is passed for it.
+         */
+        List<String> names = recordComponents.stream().map(this::componentName).toList();
+
+        MethodSpec.Builder componentsConstructor = MethodSpec.constructorBuilder()
+                .addParameters(constructorBuilder.build().parameters());
+        if (isPublic) {
+            constructorBuilder.addModifiers(Modifier.PUBLIC);
+            componentsConstructor.addModifiers(Modifier.PUBLIC);
+        }
+        componentsConstructor.addStatement("this($L, 0)", String.join(", ", names));
+        builder.addMethod(componentsConstructor.build());
+
+        constructorBuilder.addParameter(TypeName.INT, hashName);
+        constructorBuilder.addStatement("$L = $L", hashName, hashOf(recordComponents.get(0)));
+        recordComponents.stream().skip(1).forEach(component -> constructorBuilder.addStatement("$L = 31 * $L + $L",
+                hashName, hashName, hashOf(component)));
+
+        builder.addMethod(MethodSpec.methodBuilder("hashCode").addAnnotation(Override.class)
+                .addAnnotation(generatedRecordInterfaceAnnotation).addModifiers(Modifier.PUBLIC).returns(TypeName.INT)
+                .addStatement("return $L", hashName).build());
+
+        TypeName wildcardType = typeVariables.isEmpty() ? recordClassType.typeName() : ParameterizedTypeName.get(
+                ClassName.get(packageName, recordClassType.name()),
+                typeVariables.stream().map(__ -> WildcardTypeName.subtypeOf(Object.class)).toArray(TypeName[]::new));
+        CodeBlock.Builder equals = CodeBlock.builder().add(
+                "return (this == o) || ((o instanceof $T other) && ($L == other.$L)", wildcardType, hashName, hashName);
+        recordComponents.forEach(component -> equals.add(" && $L", componentEquals(component)));
+        equals.add(")");
+        builder.addMethod(MethodSpec.methodBuilder("equals").addAnnotation(Override.class)
+                .addAnnotation(generatedRecordInterfaceAnnotation).addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.BOOLEAN).addParameter(Object.class, "o").addStatement(equals.build()).build());
+
+        CodeBlock.Builder toString = CodeBlock.builder().add("return $S", recordClassType.name() + "[");
+        for (int index = 0; index < names.size(); ++index) {
+            String prefix = ((index > 0) ? ", " : "") + names.get(index) + "=";
+            toString.add(" + $S + $L", prefix, names.get(index));
+        }
+        toString.add(" + $S", "]");
+        builder.addMethod(MethodSpec.methodBuilder("toString").addAnnotation(Override.class)
+                .addAnnotation(generatedRecordInterfaceAnnotation).addModifiers(Modifier.PUBLIC).returns(String.class)
+                .addStatement(toString.build()).build());
+    }
+
+    private String componentName(Component component) {
+        return component.alternateName.orElseGet(() -> component.element.getSimpleName().toString());
+    }
+
+    private CodeBlock hashOf(Component component) {
+        TypeMirror type = component.element.getReturnType();
+        if (type.getKind().isPrimitive()) {
+            return CodeBlock.of("$T.hashCode($L)", TypeName.get(type).box(), componentName(component));
+        }
+        return CodeBlock.of("$T.hashCode($L)", Objects.class, componentName(component));
+    }
+
+    private CodeBlock componentEquals(Component component) {
+        TypeMirror type = component.element.getReturnType();
+        String name = componentName(component);
+        return switch (type.getKind()) {
+        case FLOAT, DOUBLE -> CodeBlock.of("($T.compare($L, other.$L) == 0)", TypeName.get(type).box(), name, name);
+        case BOOLEAN, BYTE, SHORT, CHAR, INT, LONG -> CodeBlock.of("($L == other.$L)", name, name);
+        default -> CodeBlock.of("$T.equals($L, other.$L)", Objects.class, name, name);
+        };
+    }
+
     private List<Component> getRecordComponents(TypeElement iface) {
         List<Component> components = new ArrayList<>();
         try {
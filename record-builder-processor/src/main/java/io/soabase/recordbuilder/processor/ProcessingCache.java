@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-{@link ProcessingEnvironment} memoization of lookups that are repeated for every component of every record - i.e.
+ * the {@code @Target} of annotation types and type compatibility checks for initializers - or for every include - i.e.
+ * the records in a package. Instances live for as long as their processing environment (i.e. the compilation).
+ */
+class ProcessingCache {
+    /**
+     * Processor option (i.e. {@code -AcacheStatistics=true}) that reports the cache hit/miss counts as a note at the
+     * end of processing
+     */
+    static final String CACHE_STATISTICS_OPTION = "cacheStatistics";
+
+    private static final Map<ProcessingEnvironment, ProcessingCache> caches = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private final Memo<String, List<String>> annotationTargets = new Memo<>();
+    private final Memo<String, Boolean> typeCompatibility = new Memo<>();
+    private final Memo<String, List<String>> packageRecords = new Memo<>();
+    private final Set<String> compiledPackages = ConcurrentHashMap.newKeySet();
+
+    static class Memo<K, V> {
+        private final Map<K, V> values = new ConcurrentHashMap<>();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        V get(K key, Supplier<V> supplier) {
+            V value = values.get(key);
+            if (value != null) {
+                hits.incrementAndGet();
+                return value;
+            }
+            misses.incrementAndGet();
+            value = supplier.get();
+            values.put(key, value);
+            return value;
+        }
+
+        void remove(K key) {
+            values.remove(key);
+        }
+
+        long hits() {
+            return hits.get();
+        }
+
+        long misses() {
+            return misses.get();
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses;
+        }
+    }
+
+    static ProcessingCache get(ProcessingEnvironment processingEnv) {
+        return caches.computeIfAbsent(processingEnv, __ -> new ProcessingCache());
+    }
+
+    Memo<String, List<String>> annotationTargets() {
+        return annotationTargets;
+    }
+
+    Memo<String, Boolean> typeCompatibility() {
+        return typeCompatibility;
+    }
+
+    Memo<String, List<String>> packageRecords() {
+        return packageRecords;
+    }
+
+    /**
+     * Called for the packages of each round's root elements. Any cached records for the package are discarded as the
+     * package may now contain new (i.e. generated) records.
+     */
+    void packageCompiled(String packageName) {
+        compiledPackages.add(packageName);
+        packageRecords.remove(packageName);
+    }
+
+    boolean isCompiledPackage(String packageName) {
+        return compiledPackages.contains(packageName);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordBuilder processing cache: annotation targets (" + annotationTargets + "), type compatibility ("
+                + typeCompatibility + "), package records (" + packageRecords + ")";
+    }
+
+    private ProcessingCache() {
+    }
+}
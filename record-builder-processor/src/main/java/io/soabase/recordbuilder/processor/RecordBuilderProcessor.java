@@ -23,17 +23,23 @@ import io.soabase.recordbuilder.core.RecordInterface;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Generated;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.soabase.recordbuilder.processor.ElementUtils.generateName;
 
@@ -44,6 +50,23 @@ public class RecordBuilderProcessor extends AbstractProcessor {
     private static final String RECORD_INTERFACE_INCLUDE = RecordInterface.Include.class.getName().replace('$', '.');
     private static final String DECONSTRUCTOR = RecordBuilder.Deconstructor.class.getName().replace('$', '.');
 
+    /**
+     * Processor option (i.e. {@code -AparallelGeneration=true}). When set, the generated files of a round are rendered
+     * to source text in parallel on the common fork-join pool and then written through the {@link Filer} serially at
+     * the end of the round. Generating the JavaPoet specs still happens on the compiler thread as the javac model
+     * classes are not thread safe.
+     */
+    static final String PARALLEL_GENERATION_OPTION = "parallelGeneration";
+
+    // processor options that are not RecordBuilder.Options attributes
+    private static final Set<String> processorOptions = Set.of(PARALLEL_GENERATION_OPTION,
+            GenerationCache.GENERATION_CACHE_OPTION, ProcessingCache.CACHE_STATISTICS_OPTION,
+            IncludeIndex.INCLUDE_INDEX_OPTION);
+
+    private static final int MINIMUM_BUFFER_SIZE = 8 * 1024;
+    private static final int MAXIMUM_BUFFER_SIZE = 1024 * 1024;
+    private static final int ESTIMATED_MEMBER_SIZE = 256;
+
     static final AnnotationSpec generatedRecordBuilderAnnotation = AnnotationSpec.builder(Generated.class)
             .addMember("value", "$S", RecordBuilder.class.getName()).build();
     static final AnnotationSpec suppressWarningsAnnotation = AnnotationSpec.builder(SuppressWarnings.class)
@@ -57,17 +80,51 @@ public class RecordBuilderProcessor extends AbstractProcessor {
     // will log an error if a duplicate deconstructor record is attempted
     private final Set<TypeName> createdDeconstructors = ConcurrentHashMap.newKeySet();
 
+    private final List<PendingJavaFile> pendingJavaFiles = new ArrayList<>();
+    private boolean parallelGeneration;
+    private boolean cacheStatistics;
+    private IncludeIndex includeIndex;
+    private GenerationCache generationCache;
+
+    private record PendingJavaFile(Element element, String fullyQualifiedName, JavaFile javaFile,
+            Optional<GenerationCache.Entry> cacheEntry) {
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        parallelGeneration = Boolean.parseBoolean(processingEnv.getOptions().get(PARALLEL_GENERATION_OPTION));
+        cacheStatistics = Boolean.parseBoolean(processingEnv.getOptions().get(ProcessingCache.CACHE_STATISTICS_OPTION));
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(IncludeIndex.INCLUDE_INDEX_OPTION))) {
+            includeIndex = new IncludeIndex();
+        }
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(GenerationCache.GENERATION_CACHE_OPTION))) {
+            generationCache = new GenerationCache(processingEnv);
+        }
+    }
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        processRootElements(roundEnv);
         annotations.stream().filter(annotation -> annotation.getKind() == ElementKind.ANNOTATION_TYPE)
                 .forEach(annotation -> roundEnv.getElementsAnnotatedWith(annotation)
                         .forEach(element -> process(annotation, element)));
+        writePendingJavaFiles();
+        if ((includeIndex != null) && roundEnv.processingOver()) {
+            includeIndex.write(processingEnv);
+        }
+        if (cacheStatistics && roundEnv.processingOver()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    ProcessingCache.get(processingEnv).toString());
+        }
         return false;
     }
 
     @Override
     public Set<String> getSupportedOptions() {
-        return RecordBuilderOptions.optionNames();
+        return Stream.concat(RecordBuilderOptions.optionNames().stream(), processorOptions.stream())
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     @Override
@@ -84,6 +141,19 @@ public class RecordBuilderProcessor extends AbstractProcessor {
         return SourceVersion.latest();
     }
 
+    private void processRootElements(RoundEnvironment roundEnv) {
+        var processingCache = ProcessingCache.get(processingEnv);
+        for (Element rootElement : roundEnv.getRootElements()) {
+            if (rootElement.getEnclosingElement() instanceof PackageElement packageElement) {
+                var packageName = packageElement.getQualifiedName().toString();
+                processingCache.packageCompiled(packageName);
+                if ((includeIndex != null) && (rootElement.getKind() == ElementKind.RECORD)) {
+                    includeIndex.add(packageName, (TypeElement) rootElement);
+                }
+            }
+        }
+    }
+
     private void process(TypeElement annotation, Element element) {
         String annotationClass = annotation.getQualifiedName().toString();
         RecordBuilder.Template recordBuilderTemplate = annotation.getAnnotation(RecordBuilder.Template.class);
@@ -289,13 +359,33 @@ public class RecordBuilderProcessor extends AbstractProcessor {
         validateMetaData(metaData, record);
 
         var recordFacade = RecordFacade.fromTypeElement(processingEnv, record, packageName, metaData);
-        var internalProcessor = new InternalRecordBuilderProcessor(processingEnv, recordFacade, metaData);
-        internalProcessor.builderType().ifPresent(builderType -> writeJavaFile(record, internalProcessor.packageName(),
-                internalProcessor.builderClassType(), builderType, metaData.fileIndent(), metaData.fileComment()));
+        Optional<GenerationCache.Entry> cacheEntry = Optional.ofNullable(generationCache)
+                .map(cache -> cache.entry(
+                        fullyQualifiedName(recordFacade.packageName(), recordFacade.builderClassType()), recordFacade,
+                        record, metaData));
+        Optional<GenerationCache.CachedSource> cachedSource = cacheEntry
+                .flatMap(entry -> generationCache.cachedSource(entry));
+        if (cachedSource.isPresent()) {
+            // the fingerprint of the record and options is unchanged - skip building/rendering the builder
+            // but report the diagnostics of the original generation again
+            cachedSource.get().diagnostics().forEach(diagnostic -> processingEnv.getMessager()
+                    .printMessage(diagnostic.kind(), diagnostic.message(), record));
+            writeSource(record, cacheEntry.get().qualifiedName(), cachedSource.get().source(), Optional.empty());
+            return;
+        }
+
+        List<GenerationCache.CachedDiagnostic> diagnostics = new ArrayList<>();
+        var internalProcessor = new InternalRecordBuilderProcessor(
+                cacheEntry.isPresent() ? generationCache.recordingEnvironment(diagnostics) : processingEnv,
+                recordFacade, metaData);
+        internalProcessor.builderType()
+                .ifPresent(builderType -> writeJavaFile(record, internalProcessor.packageName(),
+                        internalProcessor.builderClassType(), builderType, metaData.fileIndent(),
+                        metaData.fileComment(), cacheEntry.map(entry -> entry.withDiagnostics(diagnostics))));
     }
 
     private void validateMetaData(RecordBuilder.Options metaData, Element element) {
-        var useImmutableCollections = metaData.useImmutableCollections();
+        var useImmutableCollections = metaData.useImmutableCollections() || metaData.usePersistentCollections();
         var useUnmodifiableCollections = metaData.useUnmodifiableCollections();
         var allowNullableCollections = metaData.allowNullableCollections();
 
@@ -308,24 +398,104 @@ public class RecordBuilderProcessor extends AbstractProcessor {
                     "Options.allowNullableCollections property will have no effect as Options.useImmutableCollections and Options.useUnmodifiableCollections are set to false",
                     element);
         }
+
+        if (metaData.usePersistentCollections()) {
+            validateRuntimeIsAvailable("usePersistentCollections", "PersistentList", element);
+        }
+        if (metaData.useRuntimeCollectionShims()) {
+            validateRuntimeIsAvailable("useRuntimeCollectionShims", "CollectionShims", element);
+        }
+        if (metaData.addInterning()) {
+            validateRuntimeIsAvailable("addInterning", "RecordInterner", element);
+        }
+
+        if (metaData.stagedBuilderGroupSize() < 1) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Options.stagedBuilderGroupSize must be at least 1", element);
+        }
+    }
+
+    private void validateRuntimeIsAvailable(String option, String runtimeClassName, Element element) {
+        if (processingEnv.getElementUtils()
+                .getTypeElement("io.soabase.recordbuilder.runtime." + runtimeClassName) == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Options." + option + " requires record-builder-runtime on the classpath", element);
+        }
     }
 
     private void writeJavaFile(Element element, String packageName, ClassType classType, TypeSpec typeSpec,
             String fileIndent, String fileComment) {
+        writeJavaFile(element, packageName, classType, typeSpec, fileIndent, fileComment, Optional.empty());
+    }
+
+    private void writeJavaFile(Element element, String packageName, ClassType classType, TypeSpec typeSpec,
+            String fileIndent, String fileComment, Optional<GenerationCache.Entry> cacheEntry) {
         JavaFile javaFile = javaFileBuilder(packageName, typeSpec, fileIndent, fileComment);
-        Filer filer = processingEnv.getFiler();
-        try {
-            String fullyQualifiedName = packageName.isEmpty() ? classType.name()
-                    : (packageName + "." + classType.name());
-            JavaFileObject sourceFile = filer.createSourceFile(fullyQualifiedName, element);
-            try (Writer writer = sourceFile.openWriter()) {
-                javaFile.writeTo(writer);
-            }
+        String fullyQualifiedName = fullyQualifiedName(packageName, classType);
+        if (parallelGeneration) {
+            pendingJavaFiles.add(new PendingJavaFile(element, fullyQualifiedName, javaFile, cacheEntry));
+            return;
+        }
+
+        // JavaPoet streams the file to the writer - the source is never built as a whole string
+        try (Writer writer = openSourceWriter(element, fullyQualifiedName, estimateSourceSize(typeSpec), cacheEntry)) {
+            javaFile.writeTo(writer);
+        } catch (IOException e) {
+            handleWriteError(element, e);
+        }
+    }
+
+    private void writePendingJavaFiles() {
+        if (pendingJavaFiles.isEmpty()) {
+            return;
+        }
+
+        // JavaPoet specs are immutable so rendering them is safe off of the compiler thread. The Filer
+        // is not thread safe, however, so the rendered sources are written in the original order here
+        List<String> renderedSources = pendingJavaFiles.parallelStream().map(pending -> pending.javaFile().toString())
+                .toList();
+        for (int i = 0; i < pendingJavaFiles.size(); ++i) {
+            PendingJavaFile pending = pendingJavaFiles.get(i);
+            writeSource(pending.element(), pending.fullyQualifiedName(), renderedSources.get(i), pending.cacheEntry());
+        }
+        pendingJavaFiles.clear();
+    }
+
+    private void writeSource(Element element, String fullyQualifiedName, String source,
+            Optional<GenerationCache.Entry> cacheEntry) {
+        try (Writer writer = openSourceWriter(element, fullyQualifiedName, MINIMUM_BUFFER_SIZE, cacheEntry)) {
+            writer.write(source);
         } catch (IOException e) {
             handleWriteError(element, e);
         }
     }
 
+    private Writer openSourceWriter(Element element, String fullyQualifiedName, int bufferSize,
+            Optional<GenerationCache.Entry> cacheEntry) throws IOException {
+        JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(fullyQualifiedName, element);
+        Writer writer = new BufferedWriter(sourceFile.openWriter(), bufferSize);
+        if (cacheEntry.isPresent()) {
+            return generationCache.storingWriter(element, cacheEntry.get(), writer);
+        }
+        return writer;
+    }
+
+    // JavaPoet emits many small appends. Size the output buffer to roughly the expected
+    // source so that the Filer's writer sees few large writes
+    private static int estimateSourceSize(TypeSpec typeSpec) {
+        return Math.max(MINIMUM_BUFFER_SIZE,
+                Math.min(MAXIMUM_BUFFER_SIZE, countMembers(typeSpec) * ESTIMATED_MEMBER_SIZE));
+    }
+
+    private static int countMembers(TypeSpec typeSpec) {
+        return typeSpec.methodSpecs().size() + typeSpec.fieldSpecs().size()
+                + typeSpec.typeSpecs().stream().mapToInt(nestedTypeSpec -> 1 + countMembers(nestedTypeSpec)).sum();
+    }
+
+    private static String fullyQualifiedName(String packageName, ClassType classType) {
+        return packageName.isEmpty() ? classType.name() : (packageName + "." + classType.name());
+    }
+
     private JavaFile javaFileBuilder(String packageName, TypeSpec type, String fileIndent, String fileComment) {
         var javaFileBuilder = JavaFile.builder(packageName, type).skipJavaLangImports(true).indent(fileIndent);
         if ((fileComment != null) && !fileComment.isEmpty()) {
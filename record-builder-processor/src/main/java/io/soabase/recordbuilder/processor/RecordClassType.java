@@ -18,19 +18,22 @@ package io.soabase.recordbuilder.processor;
 import com.palantir.javapoet.TypeName;
 
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.type.TypeMirror;
 import java.util.List;
 
 public class RecordClassType extends ClassType {
     private final TypeName rawTypeName;
+    private final TypeMirror typeMirror;
     private final String accessorName;
     private final List<? extends AnnotationMirror> accessorAnnotations;
     private final List<? extends AnnotationMirror> canonicalConstructorAnnotations;
 
-    public RecordClassType(TypeName typeName, TypeName rawTypeName, String name, String accessorName,
-            List<? extends AnnotationMirror> accessorAnnotations,
+    public RecordClassType(TypeName typeName, TypeName rawTypeName, TypeMirror typeMirror, String name,
+            String accessorName, List<? extends AnnotationMirror> accessorAnnotations,
             List<? extends AnnotationMirror> canonicalConstructorAnnotations) {
         super(typeName, name);
         this.rawTypeName = rawTypeName;
+        this.typeMirror = typeMirror;
         this.accessorName = accessorName;
         this.accessorAnnotations = accessorAnnotations;
         this.canonicalConstructorAnnotations = canonicalConstructorAnnotations;
@@ -44,6 +47,10 @@ public class RecordClassType extends ClassType {
         return rawTypeName;
     }
 
+    public TypeMirror typeMirror() {
+        return typeMirror;
+    }
+
     public List<? extends AnnotationMirror> getAccessorAnnotations() {
         return accessorAnnotations;
     }
@@ -19,10 +19,12 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
 import javax.lang.model.util.SimpleTypeVisitor8;
 import javax.lang.model.util.Types;
 import java.util.HashMap;
@@ -32,12 +34,41 @@ import java.util.Map;
 // from Claude.ai
 class TypeCompatibilityChecker {
     private final Types typeUtils;
+    private final ProcessingCache.Memo<String, Boolean> cache;
 
     TypeCompatibilityChecker(ProcessingEnvironment processingEnv) {
         this.typeUtils = processingEnv.getTypeUtils();
+        this.cache = ProcessingCache.get(processingEnv).typeCompatibility();
     }
 
     boolean canAssignMethodReturnToField(ExecutableElement method, TypeMirror fieldType) {
+        // type variables are only meaningful in the scope of their declaring element so
+        // checks for field types that contain them are not cached
+        if (containsTypeVariables(fieldType)
+                || !(method.getEnclosingElement() instanceof TypeElement enclosingElement)) {
+            return checkCanAssignMethodReturnToField(method, fieldType);
+        }
+
+        String key = enclosingElement.getQualifiedName() + "#" + method + "->" + fieldType;
+        return cache.get(key, () -> checkCanAssignMethodReturnToField(method, fieldType));
+    }
+
+    private static boolean containsTypeVariables(TypeMirror type) {
+        return switch (type.getKind()) {
+        case TYPEVAR -> true;
+        case ARRAY -> containsTypeVariables(((ArrayType) type).getComponentType());
+        case WILDCARD -> {
+            WildcardType wildcardType = (WildcardType) type;
+            yield ((wildcardType.getExtendsBound() != null) && containsTypeVariables(wildcardType.getExtendsBound()))
+                    || ((wildcardType.getSuperBound() != null) && containsTypeVariables(wildcardType.getSuperBound()));
+        }
+        case DECLARED -> containsTypeVariables(((DeclaredType) type).getEnclosingType()) || ((DeclaredType) type)
+                .getTypeArguments().stream().anyMatch(TypeCompatibilityChecker::containsTypeVariables);
+        default -> false;
+        };
+    }
+
+    private boolean checkCanAssignMethodReturnToField(ExecutableElement method, TypeMirror fieldType) {
         TypeMirror returnType = method.getReturnType();
 
         // If no type variables, use simple assignment check
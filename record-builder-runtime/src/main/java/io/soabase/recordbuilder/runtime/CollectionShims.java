@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.runtime;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared implementations of the collection shim methods and internal mutable collections that generated builders
+ * otherwise declare privately. Used by builders generated with {@code useRuntimeCollectionShims = true} so that a
+ * single copy of each method and class is loaded (and JIT compiled) for all builders. The methods are grouped by
+ * collection mode ({@code immutable}, {@code unmodifiable} and {@code persistent}). The {@code nullable} variants
+ * return {@code null} instead of an empty collection for {@code null} arguments.
+ */
+public final class CollectionShims {
+    private CollectionShims() {
+    }
+
+    public static <T> List<T> immutableList(Collection<? extends T> o) {
+        return (o != null) ? List.copyOf(o) : List.of();
+    }
+
+    public static <T> List<T> nullableImmutableList(Collection<? extends T> o) {
+        return (o != null) ? List.copyOf(o) : null;
+    }
+
+    public static <T> Set<T> immutableSet(Collection<? extends T> o) {
+        return (o != null) ? Set.copyOf(o) : Set.of();
+    }
+
+    public static <T> Set<T> nullableImmutableSet(Collection<? extends T> o) {
+        return (o != null) ? Set.copyOf(o) : null;
+    }
+
+    public static <K, V> Map<K, V> immutableMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? Map.copyOf(o) : Map.of();
+    }
+
+    public static <K, V> Map<K, V> nullableImmutableMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? Map.copyOf(o) : null;
+    }
+
+    public static <T> Collection<T> immutableCollection(Collection<? extends T> o) {
+        return (o instanceof Set) ? Set.copyOf(o) : immutableList(o);
+    }
+
+    public static <T> Collection<T> nullableImmutableCollection(Collection<? extends T> o) {
+        return (o instanceof Set) ? Set.copyOf(o) : nullableImmutableList(o);
+    }
+
+    public static <T> List<T> unmodifiableList(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableList(o) : Collections.emptyList();
+    }
+
+    public static <T> List<T> nullableUnmodifiableList(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableList(o) : null;
+    }
+
+    public static <T> Set<T> unmodifiableSet(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableSet(o) : Collections.emptySet();
+    }
+
+    public static <T> Set<T> nullableUnmodifiableSet(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableSet(o) : null;
+    }
+
+    public static <K, V> Map<K, V> unmodifiableMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? Collections.unmodifiableMap(o) : Collections.emptyMap();
+    }
+
+    public static <K, V> Map<K, V> nullableUnmodifiableMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? Collections.unmodifiableMap(o) : null;
+    }
+
+    public static <T> Collection<T> unmodifiableCollection(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableCollection(o) : Collections.emptyList();
+    }
+
+    public static <T> Collection<T> nullableUnmodifiableCollection(Collection<? extends T> o) {
+        return (o != null) ? toUnmodifiableCollection(o) : null;
+    }
+
+    public static <T> PersistentList<T> persistentList(Collection<? extends T> o) {
+        return (o != null) ? PersistentList.copyOf(o) : PersistentList.of();
+    }
+
+    public static <T> PersistentList<T> nullablePersistentList(Collection<? extends T> o) {
+        return (o != null) ? PersistentList.copyOf(o) : null;
+    }
+
+    public static <T> PersistentSet<T> persistentSet(Collection<? extends T> o) {
+        return (o != null) ? PersistentSet.copyOf(o) : PersistentSet.of();
+    }
+
+    public static <T> PersistentSet<T> nullablePersistentSet(Collection<? extends T> o) {
+        return (o != null) ? PersistentSet.copyOf(o) : null;
+    }
+
+    public static <K, V> PersistentMap<K, V> persistentMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? PersistentMap.copyOf(o) : PersistentMap.of();
+    }
+
+    public static <K, V> PersistentMap<K, V> nullablePersistentMap(Map<? extends K, ? extends V> o) {
+        return (o != null) ? PersistentMap.copyOf(o) : null;
+    }
+
+    public static <T> Collection<T> persistentCollection(Collection<? extends T> o) {
+        return (o instanceof Set) ? PersistentSet.copyOf(o) : persistentList(o);
+    }
+
+    public static <T> Collection<T> nullablePersistentCollection(Collection<? extends T> o) {
+        return (o instanceof Set) ? PersistentSet.copyOf(o) : nullablePersistentList(o);
+    }
+
+    /**
+     * Return the given list if it is a {@link MutableList} (i.e. it was allocated by a builder) or else a new
+     * {@code MutableList} with its elements
+     */
+    public static <T> List<T> mutableList(List<T> o) {
+        if (o == null) {
+            return new MutableList<>();
+        }
+        return (o instanceof MutableList) ? o : new MutableList<>(o);
+    }
+
+    /**
+     * Return the given set if it is a {@link MutableSet} (i.e. it was allocated by a builder) or else a new
+     * {@code MutableSet} with its elements
+     */
+    public static <T> Set<T> mutableSet(Set<T> o) {
+        if (o == null) {
+            return new MutableSet<>();
+        }
+        return (o instanceof MutableSet) ? o : new MutableSet<>(o);
+    }
+
+    /**
+     * Return the given map if it is a {@link MutableMap} (i.e. it was allocated by a builder) or else a new
+     * {@code MutableMap} with its entries
+     */
+    public static <K, V> Map<K, V> mutableMap(Map<K, V> o) {
+        if (o == null) {
+            return new MutableMap<>();
+        }
+        return (o instanceof MutableMap) ? o : new MutableMap<>(o);
+    }
+
+    /**
+     * Like {@link #mutableList(List)} but for {@link PersistentMutableList}
+     */
+    public static <T> List<T> persistentMutableList(List<T> o) {
+        if (o == null) {
+            return new PersistentMutableList<>();
+        }
+        return (o instanceof PersistentMutableList) ? o : new PersistentMutableList<>(o);
+    }
+
+    /**
+     * Like {@link #mutableSet(Set)} but for {@link PersistentMutableSet}
+     */
+    public static <T> Set<T> persistentMutableSet(Set<T> o) {
+        if (o == null) {
+            return new PersistentMutableSet<>();
+        }
+        return (o instanceof PersistentMutableSet) ? o : new PersistentMutableSet<>(o);
+    }
+
+    /**
+     * Like {@link #mutableMap(Map)} but for {@link PersistentMutableMap}
+     */
+    public static <K, V> Map<K, V> persistentMutableMap(Map<K, V> o) {
+        if (o == null) {
+            return new PersistentMutableMap<>();
+        }
+        return (o instanceof PersistentMutableMap) ? o : new PersistentMutableMap<>(o);
+    }
+
+    public static final class MutableList<T> extends ArrayList<T> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public MutableList() {
+        }
+
+        public MutableList(Collection<? extends T> o) {
+            super(o);
+        }
+    }
+
+    public static final class MutableSet<T> extends HashSet<T> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public MutableSet() {
+        }
+
+        public MutableSet(Collection<? extends T> o) {
+            super(o);
+        }
+    }
+
+    public static final class MutableMap<K, V> extends HashMap<K, V> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public MutableMap() {
+        }
+
+        public MutableMap(Map<? extends K, ? extends V> o) {
+            super(o);
+        }
+    }
+
+    public static final class PersistentMutableList<T> extends PersistentList.Mutable<T> {
+        public PersistentMutableList() {
+        }
+
+        public PersistentMutableList(Collection<? extends T> o) {
+            super(o);
+        }
+    }
+
+    public static final class PersistentMutableSet<T> extends PersistentSet.Mutable<T> {
+        public PersistentMutableSet() {
+        }
+
+        public PersistentMutableSet(Collection<? extends T> o) {
+            super(o);
+        }
+    }
+
+    public static final class PersistentMutableMap<K, V> extends PersistentMap.Mutable<K, V> {
+        public PersistentMutableMap() {
+        }
+
+        public PersistentMutableMap(Map<? extends K, ? extends V> o) {
+            super(o);
+        }
+    }
+
+    private static <T> List<T> toUnmodifiableList(Collection<? extends T> o) {
+        return (o instanceof List<? extends T> list) ? Collections.unmodifiableList(list)
+                : Collections.unmodifiableList(new ArrayList<>(o));
+    }
+
+    private static <T> Set<T> toUnmodifiableSet(Collection<? extends T> o) {
+        return (o instanceof Set<? extends T> set) ? Collections.unmodifiableSet(set)
+                : Collections.unmodifiableSet(new LinkedHashSet<>(o));
+    }
+
+    private static <T> Collection<T> toUnmodifiableCollection(Collection<? extends T> o) {
+        if (o instanceof List<? extends T> list) {
+            return Collections.unmodifiableList(list);
+        }
+        if (o instanceof Set<? extends T> set) {
+            return Collections.unmodifiableSet(set);
+        }
+        return Collections.unmodifiableCollection(o);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that shares structure between versions. Implemented as a 32-way bit-partitioned vector trie with a
+ * tail buffer: {@link #get(int)}, {@link #plus(Object)} and {@link #with(int, Object)} are {@code O(log32 n)} and never
+ * copy the entire list. All {@code java.util.List} mutators throw {@link UnsupportedOperationException}. Use
+ * {@link Mutable} to make a series of changes.
+ *
+ * @param <T>
+ *            element type
+ */
+public final class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int SHIFT = 5;
+    private static final int WIDTH = 1 << SHIFT;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+    private static final PersistentList<?> EMPTY = new PersistentList<>(0, SHIFT, new Object[WIDTH], EMPTY_ARRAY);
+
+    private final int count;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentList(int count, int shift, Object[] root, Object[] tail) {
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Return the empty list
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> of() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Return a persistent list with the elements of the given collection. If the collection is already a
+     * {@code PersistentList} it is returned as-is. If it is a {@link Mutable}, its current snapshot is returned. Both
+     * cases are {@code O(1)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> copyOf(Collection<? extends T> collection) {
+        if (collection instanceof PersistentList) {
+            return (PersistentList<T>) collection;
+        }
+        if (collection instanceof Mutable) {
+            return ((Mutable<T>) collection).toPersistent();
+        }
+        return fromArray(collection.toArray());
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, count);
+        return (T) arrayFor(index)[index & MASK];
+    }
+
+    /**
+     * Return a new list with the given element appended
+     */
+    public PersistentList<T> plus(T element) {
+        if ((count - tailOffset()) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentList<>(count + 1, shift, root, newTail);
+        }
+
+        Object[] newRoot;
+        int newShift = shift;
+        if ((count >>> SHIFT) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += SHIFT;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentList<>(count + 1, newShift, newRoot, new Object[] { element });
+    }
+
+    /**
+     * Return a new list with the element at the given index replaced
+     */
+    public PersistentList<T> with(int index, T element) {
+        Objects.checkIndex(index, count);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentList<>(count, shift, root, newTail);
+        }
+        return new PersistentList<>(count, shift, assoc(shift, root, index, element), tail);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int index = 0;
+            private Object[] array = (count > 0) ? arrayFor(0) : EMPTY_ARRAY;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= count) {
+                    throw new NoSuchElementException();
+                }
+                if ((index > 0) && ((index & MASK) == 0)) {
+                    array = arrayFor(index);
+                }
+                return (T) array[index++ & MASK];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[count];
+        for (int index = 0; index < count; index += WIDTH) {
+            Object[] array = arrayFor(index);
+            System.arraycopy(array, 0, result, index, Math.min(WIDTH, count - index));
+        }
+        return result;
+    }
+
+    private int tailOffset() {
+        return (count < WIDTH) ? 0 : (((count - 1) >>> SHIFT) << SHIFT);
+    }
+
+    private Object[] arrayFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= SHIFT) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((count - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        Object[] nodeToInsert;
+        if (level == SHIFT) {
+            nodeToInsert = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            nodeToInsert = (child != null) ? pushTail(level - SHIFT, child, tailNode)
+                    : newPath(level - SHIFT, tailNode);
+        }
+        result[subIndex] = nodeToInsert;
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - SHIFT, node);
+        return result;
+    }
+
+    private static Object[] assoc(int level, Object[] node, int index, Object element) {
+        Object[] result = node.clone();
+        if (level == 0) {
+            result[index & MASK] = element;
+        } else {
+            int subIndex = (index >>> level) & MASK;
+            result[subIndex] = assoc(level - SHIFT, (Object[]) node[subIndex], index, element);
+        }
+        return result;
+    }
+
+    private static <T> PersistentList<T> fromArray(Object[] elements) {
+        int count = elements.length;
+        if (count == 0) {
+            return of();
+        }
+
+        int tailOffset = (count < WIDTH) ? 0 : (((count - 1) >>> SHIFT) << SHIFT);
+        Object[] tail = Arrays.copyOfRange(elements, tailOffset, count);
+
+        // build the trie bottom-up from full leaves - the result has the same shape as repeated plus() calls
+        List<Object[]> level = new ArrayList<>();
+        for (int index = 0; index < tailOffset; index += WIDTH) {
+            level.add(Arrays.copyOfRange(elements, index, index + WIDTH));
+        }
+        int shift = SHIFT;
+        while (level.size() > WIDTH) {
+            List<Object[]> parents = new ArrayList<>();
+            for (int index = 0; index < level.size(); index += WIDTH) {
+                Object[] parent = new Object[WIDTH];
+                List<Object[]> children = level.subList(index, Math.min(level.size(), index + WIDTH));
+                for (int childIndex = 0; childIndex < children.size(); ++childIndex) {
+                    parent[childIndex] = children.get(childIndex);
+                }
+                parents.add(parent);
+            }
+            level = parents;
+            shift += SHIFT;
+        }
+        Object[] root = new Object[WIDTH];
+        for (int index = 0; index < level.size(); ++index) {
+            root[index] = level.get(index);
+        }
+        return new PersistentList<>(count, shift, root, tail);
+    }
+
+    /**
+     * A mutable list backed by a {@link PersistentList}. Creating a {@code Mutable} from a {@code PersistentList} and
+     * {@link #toPersistent()} are both {@code O(1)}. Appending and replacing elements are {@code O(log32 n)}. Inserting
+     * or removing elements other than at the end rebuilds the list.
+     *
+     * @param <T>
+     *            element type
+     */
+    public static class Mutable<T> extends AbstractList<T> implements RandomAccess {
+        private PersistentList<T> list;
+
+        public Mutable() {
+            list = of();
+        }
+
+        public Mutable(Collection<? extends T> collection) {
+            list = copyOf(collection);
+        }
+
+        /**
+         * Return the current contents of this list. Subsequent changes to this list do not affect the returned
+         * instance.
+         */
+        public PersistentList<T> toPersistent() {
+            return list;
+        }
+
+        @Override
+        public T get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public boolean add(T element) {
+            list = list.plus(element);
+            ++modCount;
+            return true;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends T> collection) {
+            if (list.isEmpty()) {
+                list = copyOf(collection);
+                ++modCount;
+                return !collection.isEmpty();
+            }
+            return super.addAll(collection);
+        }
+
+        @Override
+        public T set(int index, T element) {
+            T previous = list.get(index);
+            list = list.with(index, element);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, T element) {
+            if (index == list.size()) {
+                add(element);
+                return;
+            }
+            Objects.checkIndex(index, list.size());
+            List<T> copy = new ArrayList<>(list);
+            copy.add(index, element);
+            list = copyOf(copy);
+            ++modCount;
+        }
+
+        @Override
+        public T remove(int index) {
+            List<T> copy = new ArrayList<>(list);
+            T previous = copy.remove(index);
+            list = copyOf(copy);
+            ++modCount;
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            list = of();
+            ++modCount;
+        }
+    }
+}
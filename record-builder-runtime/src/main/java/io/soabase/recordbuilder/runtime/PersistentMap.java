@@ -0,0 +1,609 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.runtime;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable map that shares structure between versions. Implemented as a compressed hash-array mapped trie (CHAMP):
+ * {@link #get(Object)}, {@link #plus(Object, Object)} and {@link #minus(Object)} are {@code O(log32 n)} and never copy
+ * the entire map. All {@code java.util.Map} mutators throw {@link UnsupportedOperationException}. Use {@link Mutable}
+ * to make a series of changes. Iteration order is unspecified.
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final int SHIFT = 5;
+    private static final int MASK = (1 << SHIFT) - 1;
+    private static final int MAX_SHIFT = 32;
+    private static final Object NOT_FOUND = new Object();
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new BitmapNode(0, 0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> of() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Return a persistent map with the entries of the given map. If the map is already a {@code PersistentMap} it is
+     * returned as-is. If it is a {@link Mutable}, its current snapshot is returned. Both cases are {@code O(1)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        }
+        if (map instanceof Mutable) {
+            return ((Mutable<K, V>) map).toPersistent();
+        }
+        PersistentMap<K, V> result = of();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object value = root.find(key, hash(key), 0);
+        return (value != NOT_FOUND) ? (V) value : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        Object value = root.find(key, hash(key), 0);
+        return (value != NOT_FOUND) ? (V) value : defaultValue;
+    }
+
+    /**
+     * Return a new map with the given mapping added or replaced
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Change change = new Change();
+        Node newRoot = root.put(key, hash(key), value, 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, change.sizeChanged ? (size + 1) : size);
+    }
+
+    /**
+     * Return a new map without the given key
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        Change change = new Change();
+        Node newRoot = root.remove(key, hash(key), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o instanceof Map.Entry<?, ?> entry) {
+                    Object value = root.find(entry.getKey(), hash(entry.getKey()), 0);
+                    return (value != NOT_FOUND) && Objects.equals(value, entry.getValue());
+                }
+                return false;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hash = Objects.hashCode(key);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static class Change {
+        boolean sizeChanged;
+    }
+
+    private abstract static class Node {
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Object key, int hash, Object value, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        abstract int entryCount();
+
+        abstract int nodeCount();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract Node nodeAt(int index);
+    }
+
+    // entries are stored as key/value pairs at the front of the content array, sub-nodes are stored
+    // in reverse order at the back
+    private static final class BitmapNode extends Node {
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = 1 << mask(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return Objects.equals(key, content[2 * index]) ? content[2 * index + 1] : NOT_FOUND;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeForBit(bit).find(key, hash, shift + SHIFT);
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift, Change change) {
+            int bit = 1 << mask(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                Object currentKey = content[2 * index];
+                Object currentValue = content[2 * index + 1];
+                if (Objects.equals(key, currentKey)) {
+                    if (currentValue == value) {
+                        return this;
+                    }
+                    Object[] newContent = content.clone();
+                    newContent[2 * index + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, newContent);
+                }
+                change.sizeChanged = true;
+                Node subNode = mergeTwo(currentKey, hash(currentKey), currentValue, key, hash, value, shift + SHIFT);
+                return copyAndMigrateToNode(bit, subNode);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node subNode = nodeForBit(bit);
+                Node newSubNode = subNode.put(key, hash, value, shift + SHIFT, change);
+                return (newSubNode == subNode) ? this : copyAndSetNode(bit, newSubNode);
+            }
+            change.sizeChanged = true;
+            return copyAndInsertEntry(bit, key, value);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = 1 << mask(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!Objects.equals(key, content[2 * index])) {
+                    return this;
+                }
+                change.sizeChanged = true;
+                return copyAndRemoveEntry(bit);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node subNode = nodeForBit(bit);
+                Node newSubNode = subNode.remove(key, hash, shift + SHIFT, change);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                if ((newSubNode.entryCount() == 1) && (newSubNode.nodeCount() == 0)) {
+                    // keep the trie canonical - single entries are inlined into the parent
+                    return copyAndMigrateToEntry(bit, newSubNode.keyAt(0), newSubNode.valueAt(0));
+                }
+                return copyAndSetNode(bit, newSubNode);
+            }
+            return this;
+        }
+
+        @Override
+        int entryCount() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private Node nodeForBit(int bit) {
+            return nodeAt(nodeIndex(bit));
+        }
+
+        private Node copyAndSetNode(int bit, Node node) {
+            Object[] newContent = content.clone();
+            newContent[content.length - 1 - nodeIndex(bit)] = node;
+            return new BitmapNode(dataMap, nodeMap, newContent);
+        }
+
+        private Node copyAndInsertEntry(int bit, Object key, Object value) {
+            int position = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, position);
+            newContent[position] = key;
+            newContent[position + 1] = value;
+            System.arraycopy(content, position, newContent, position + 2, content.length - position);
+            return new BitmapNode(dataMap | bit, nodeMap, newContent);
+        }
+
+        private Node copyAndRemoveEntry(int bit) {
+            int position = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, position);
+            System.arraycopy(content, position + 2, newContent, position, content.length - position - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap, newContent);
+        }
+
+        private Node copyAndMigrateToNode(int bit, Node node) {
+            int oldPosition = 2 * dataIndex(bit);
+            int newPosition = content.length - 2 - nodeIndex(bit);
+            Object[] newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, oldPosition);
+            System.arraycopy(content, oldPosition + 2, newContent, oldPosition, newPosition - oldPosition);
+            newContent[newPosition] = node;
+            System.arraycopy(content, newPosition + 2, newContent, newPosition + 1, content.length - newPosition - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContent);
+        }
+
+        private Node copyAndMigrateToEntry(int bit, Object key, Object value) {
+            int oldPosition = content.length - 1 - nodeIndex(bit);
+            int newPosition = 2 * Integer.bitCount(dataMap & (bit - 1));
+            Object[] newContent = new Object[content.length + 1];
+            System.arraycopy(content, 0, newContent, 0, newPosition);
+            newContent[newPosition] = key;
+            newContent[newPosition + 1] = value;
+            System.arraycopy(content, newPosition, newContent, newPosition + 2, oldPosition - newPosition);
+            System.arraycopy(content, oldPosition + 1, newContent, oldPosition + 2, content.length - oldPosition - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContent);
+        }
+    }
+
+    // entries whose hashes are identical
+    private static final class CollisionNode extends Node {
+        private final Object[] keys;
+        private final Object[] values;
+
+        CollisionNode(Object[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return (index >= 0) ? values[index] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift, Change change) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (values[index] == value) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[index] = value;
+                return new CollisionNode(keys, newValues);
+            }
+            change.sizeChanged = true;
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            return new CollisionNode(newKeys, newValues);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            change.sizeChanged = true;
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+            return new CollisionNode(newKeys, newValues);
+        }
+
+        @Override
+        int entryCount() {
+            return keys.length;
+        }
+
+        @Override
+        int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return keys[index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return values[index];
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        private int indexOf(Object key) {
+            for (int index = 0; index < keys.length; ++index) {
+                if (Objects.equals(key, keys[index])) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static Node mergeTwo(Object key0, int hash0, Object value0, Object key1, int hash1, Object value1,
+            int shift) {
+        if (shift >= MAX_SHIFT) {
+            return new CollisionNode(new Object[] { key0, key1 }, new Object[] { value0, value1 });
+        }
+        int mask0 = mask(hash0, shift);
+        int mask1 = mask(hash1, shift);
+        if (mask0 != mask1) {
+            int dataMap = (1 << mask0) | (1 << mask1);
+            Object[] content = (mask0 < mask1) ? new Object[] { key0, value0, key1, value1 }
+                    : new Object[] { key1, value1, key0, value0 };
+            return new BitmapNode(dataMap, 0, content);
+        }
+        Node subNode = mergeTwo(key0, hash0, value0, key1, hash1, value1, shift + SHIFT);
+        return new BitmapNode(0, 1 << mask0, new Object[] { subNode });
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Node[] nodes = new Node[(MAX_SHIFT / SHIFT) + 2];
+        private final int[] nodeCursors = new int[nodes.length];
+        private int depth;
+        private Node currentNode;
+        private int entryCursor;
+
+        EntryIterator(Node root) {
+            currentNode = root;
+            nodes[0] = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (entryCursor >= currentNode.entryCount()) {
+                if (!advanceNode()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = entryCursor++;
+            return new SimpleImmutableEntry<>((K) currentNode.keyAt(index), (V) currentNode.valueAt(index));
+        }
+
+        private boolean advanceNode() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (nodeCursors[depth] < node.nodeCount()) {
+                    Node child = node.nodeAt(nodeCursors[depth]++);
+                    ++depth;
+                    nodes[depth] = child;
+                    nodeCursors[depth] = 0;
+                    currentNode = child;
+                    entryCursor = 0;
+                    return true;
+                }
+                --depth;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A mutable map backed by a {@link PersistentMap}. Creating a {@code Mutable} from a {@code PersistentMap} and
+     * {@link #toPersistent()} are both {@code O(1)}. Adding, replacing and removing entries are {@code O(log32 n)}.
+     *
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     */
+    public static class Mutable<K, V> extends AbstractMap<K, V> {
+        private PersistentMap<K, V> map;
+
+        public Mutable() {
+            map = of();
+        }
+
+        public Mutable(Map<? extends K, ? extends V> map) {
+            this.map = copyOf(map);
+        }
+
+        /**
+         * Return the current contents of this map. Subsequent changes to this map do not affect the returned instance.
+         */
+        public PersistentMap<K, V> toPersistent() {
+            return map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            V previous = map.get(key);
+            map = map.plus(key, value);
+            return previous;
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> m) {
+            if (map.isEmpty()) {
+                map = copyOf(m);
+            } else {
+                super.putAll(m);
+            }
+        }
+
+        @Override
+        public V remove(Object key) {
+            V previous = map.get(key);
+            map = map.minus(key);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            map = of();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+                    return new Iterator<>() {
+                        private Map.Entry<K, V> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<K, V> next() {
+                            last = iterator.next();
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            Mutable.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+}
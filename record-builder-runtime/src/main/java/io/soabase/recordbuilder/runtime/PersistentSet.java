@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.runtime;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An immutable set that shares structure between versions. Backed by a {@link PersistentMap}:
+ * {@link #contains(Object)}, {@link #plus(Object)} and {@link #minus(Object)} are {@code O(log32 n)} and never copy the
+ * entire set. All {@code java.util.Set} mutators throw {@link UnsupportedOperationException}. Use {@link Mutable} to
+ * make a series of changes. Iteration order is unspecified.
+ *
+ * @param <T>
+ *            element type
+ */
+public final class PersistentSet<T> extends AbstractSet<T> {
+    private static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.of());
+
+    private final PersistentMap<T, Boolean> map;
+
+    private PersistentSet(PersistentMap<T, Boolean> map) {
+        this.map = map;
+    }
+
+    /**
+     * Return the empty set
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentSet<T> of() {
+        return (PersistentSet<T>) EMPTY;
+    }
+
+    /**
+     * Return a persistent set with the elements of the given collection. If the collection is already a
+     * {@code PersistentSet} it is returned as-is. If it is a {@link Mutable}, its current snapshot is returned. Both
+     * cases are {@code O(1)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentSet<T> copyOf(Collection<? extends T> collection) {
+        if (collection instanceof PersistentSet) {
+            return (PersistentSet<T>) collection;
+        }
+        if (collection instanceof Mutable) {
+            return ((Mutable<T>) collection).toPersistent();
+        }
+        PersistentSet<T> result = of();
+        for (T element : collection) {
+            result = result.plus(element);
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Map.Entry<T, Boolean>> iterator = map.entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next().getKey();
+            }
+        };
+    }
+
+    /**
+     * Return a new set with the given element added
+     */
+    public PersistentSet<T> plus(T element) {
+        PersistentMap<T, Boolean> newMap = map.plus(element, Boolean.TRUE);
+        return (newMap == map) ? this : new PersistentSet<>(newMap);
+    }
+
+    /**
+     * Return a new set without the given element
+     */
+    public PersistentSet<T> minus(Object element) {
+        PersistentMap<T, Boolean> newMap = map.minus(element);
+        return (newMap == map) ? this : new PersistentSet<>(newMap);
+    }
+
+    /**
+     * A mutable set backed by a {@link PersistentSet}. Creating a {@code Mutable} from a {@code PersistentSet} and
+     * {@link #toPersistent()} are both {@code O(1)}. Adding and removing elements are {@code O(log32 n)}.
+     *
+     * @param <T>
+     *            element type
+     */
+    public static class Mutable<T> extends AbstractSet<T> {
+        private PersistentSet<T> set;
+
+        public Mutable() {
+            set = of();
+        }
+
+        public Mutable(Collection<? extends T> collection) {
+            set = copyOf(collection);
+        }
+
+        /**
+         * Return the current contents of this set. Subsequent changes to this set do not affect the returned instance.
+         */
+        public PersistentSet<T> toPersistent() {
+            return set;
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public boolean add(T element) {
+            PersistentSet<T> newSet = set.plus(element);
+            boolean changed = (newSet != set);
+            set = newSet;
+            return changed;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends T> collection) {
+            if (set.isEmpty()) {
+                set = copyOf(collection);
+                return !set.isEmpty();
+            }
+            return super.addAll(collection);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            PersistentSet<T> newSet = set.minus(o);
+            boolean changed = (newSet != set);
+            set = newSet;
+            return changed;
+        }
+
+        @Override
+        public void clear() {
+            set = of();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<T> iterator = set.iterator();
+            return new Iterator<>() {
+                private T last;
+                private boolean canRemove;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    last = iterator.next();
+                    canRemove = true;
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (!canRemove) {
+                        throw new IllegalStateException();
+                    }
+                    Mutable.this.remove(last);
+                    canRemove = false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.runtime;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes instances: {@link #intern(Object)} returns a single shared instance for all instances that are
+ * {@code equals()} to each other. Instances are held weakly - once the canonical instance is no longer referenced
+ * elsewhere it is garbage collected and removed from the interner. Reads are lock-free and writes are striped via
+ * {@link ConcurrentHashMap}. Interned types must have stable {@code equals()} and {@code hashCode()} (records with
+ * immutable components).
+ */
+public final class RecordInterner {
+    private final ConcurrentHashMap<Key, WeakKey> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    /**
+     * Return the canonical instance that is equal to the given instance. If there is no such instance, the given
+     * instance becomes the canonical instance.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T intern(T instance) {
+        Objects.requireNonNull(instance, "instance cannot be null");
+        expungeStaleEntries();
+
+        int hash = instance.hashCode();
+        WeakKey existing = map.get(new LookupKey(instance, hash));
+        if (existing != null) {
+            Object canonical = existing.get();
+            if (canonical != null) {
+                return (T) canonical;
+            }
+        }
+
+        WeakKey key = new WeakKey(instance, hash, queue);
+        while (true) {
+            WeakKey prior = map.putIfAbsent(key, key);
+            if (prior == null) {
+                return instance;
+            }
+            Object canonical = prior.get();
+            if (canonical != null) {
+                return (T) canonical;
+            }
+            // the prior instance has been collected but not yet expunged
+            map.remove(prior, prior);
+        }
+    }
+
+    /**
+     * Return the number of canonical instances currently held. Instances that have been garbage collected but not yet
+     * expunged may be included.
+     */
+    public int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            map.remove(reference, reference);
+        }
+    }
+
+    private interface Key {
+        Object referent();
+
+        int hash();
+
+        default boolean keyEquals(Object o) {
+            if (o instanceof Key key) {
+                if (hash() != key.hash()) {
+                    return false;
+                }
+                Object referent = referent();
+                return (referent != null) && referent.equals(key.referent());
+            }
+            return false;
+        }
+    }
+
+    private record LookupKey(Object referent, int hash) implements Key {
+        @Override
+        public boolean equals(Object o) {
+            return (this == o) || keyEquals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class WeakKey extends WeakReference<Object> implements Key {
+        private final int hash;
+
+        WeakKey(Object referent, int hash, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (this == o) || keyEquals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
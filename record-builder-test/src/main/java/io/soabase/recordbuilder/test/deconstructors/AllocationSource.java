@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.deconstructors;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+public class AllocationSource {
+    private final int id;
+    private final long timestamp;
+    private final String name;
+
+    public AllocationSource(int id, long timestamp, String name) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.name = name;
+    }
+
+    @RecordBuilder.Deconstructor
+    public void deconstructor(IntConsumer id, LongConsumer timestamp, Consumer<String> name) {
+        id.accept(this.id);
+        timestamp.accept(this.timestamp);
+        name.accept(this.name);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.deconstructors;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class ComparableSource {
+    private final int priority;
+    private final String name;
+
+    public ComparableSource(int priority, String name) {
+        this.priority = priority;
+        this.name = name;
+    }
+
+    @RecordBuilder.Deconstructor
+    @RecordBuilder.Options(addComparator = true)
+    public void deconstructor(IntConsumer priority, Consumer<String> name) {
+        priority.accept(this.priority);
+        name.accept(this.name);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.deconstructors;
+
+import io.soabase.recordbuilder.core.RecordBuilder.Deconstructor;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+public class ReusableHolder<T> {
+    private final int qty;
+    private final long id;
+    private final double price;
+    private final String name;
+    private final List<T> items;
+    private final ReusableHolder<T> parent;
+
+    public ReusableHolder(int qty, long id, double price, String name, List<T> items, ReusableHolder<T> parent) {
+        this.qty = qty;
+        this.id = id;
+        this.price = price;
+        this.name = name;
+        this.items = items;
+        this.parent = parent;
+    }
+
+    @Deconstructor(addRecordBuilder = false, reuseComponentHolder = true, componentHolderClassName = "_Holder")
+    public void deconstructor(IntConsumer qty, LongConsumer id, DoubleConsumer price, Consumer<String> name,
+            Consumer<List<T>> items, Consumer<String> parentName) {
+        qty.accept(this.qty);
+        id.accept(this.id);
+        // deconstructing the parent re-enters from() on this thread
+        parentName.accept((parent != null) ? ReusableHolderDao.from(parent).name() : null);
+        price.accept(this.price);
+        name.accept(this.name);
+        items.accept(this.items);
+    }
+}
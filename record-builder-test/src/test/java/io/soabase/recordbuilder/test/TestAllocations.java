@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import io.soabase.recordbuilder.test.deconstructors.AllocationSource;
+import io.soabase.recordbuilder.test.deconstructors.AllocationSourceDao;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the allocation behavior of generated code on warm (JIT compiled) paths. Allocations are compared to a baseline
+ * of allocating the record directly so that the assertions don't depend on object layout (compressed oops, etc.).
+ * Builders, withers, stages, method references, etc. must not survive escape analysis.
+ */
+class TestAllocations {
+    private static final int ITERATIONS = 100_000;
+    private static final int ROUNDS = 10;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    private static final AllocationRecord record = new AllocationRecord(1, 2L, "name", 3.0);
+    private static final AllocationSource source = new AllocationSource(1, 2L, "s");
+
+    @BeforeAll
+    static void setup() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        var jvmArguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        Assumptions.assumeFalse(jvmArguments.contains("-Xint"));
+        // agents such as JaCoCo prevent escape analysis. The "allocation-test" Surefire execution runs without them.
+        Assumptions.assumeFalse(jvmArguments.stream().anyMatch(argument -> argument.startsWith("-javaagent")));
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void testBuilders() {
+        long recordBytes = allocatedBytesPerCall(i -> new AllocationRecord(i, i, "name", i));
+
+        assertThat(allocatedBytesPerCall(
+                i -> AllocationRecordBuilder.builder().id(i).timestamp(i).name("name").value(i).build()))
+                        .isLessThanOrEqualTo(recordBytes);
+        assertThat(allocatedBytesPerCall(i -> AllocationRecordBuilder.builder(record).id(i).build()))
+                .isLessThanOrEqualTo(recordBytes);
+
+        assertThat(allocatedBytesPerCall(
+                i -> AllocationRecordBuilder.stagedBuilder().id(i).timestamp(i).name("name").value(i).build()))
+                        .isLessThanOrEqualTo(recordBytes);
+    }
+
+    @Test
+    void testWithers() {
+        long recordBytes = allocatedBytesPerCall(i -> new AllocationRecord(i, i, "name", i));
+
+        assertThat(allocatedBytesPerCall(record::withId)).isLessThanOrEqualTo(recordBytes);
+        assertThat(allocatedBytesPerCall(i -> record.with().id(i).build())).isLessThanOrEqualTo(recordBytes);
+        assertThat(allocatedBytesPerCall(i -> record.with(builder -> builder.id(i)))).isLessThanOrEqualTo(recordBytes);
+    }
+
+    @Test
+    void testStream() {
+        long recordBytes = allocatedBytesPerCall(i -> new AllocationRecord(i, i, "name", i));
+
+        // one entry per component, the varargs array and the stream pipeline
+        assertThat(allocatedBytesPerCall(i -> AllocationRecordBuilder.stream(record)))
+                .isLessThanOrEqualTo(8 * recordBytes);
+    }
+
+    @Test
+    void testDeconstructor() {
+        long recordBytes = allocatedBytesPerCall(i -> new AllocationSourceDao(i, i, "name"));
+
+        assertThat(allocatedBytesPerCall(i -> AllocationSourceDao.from(source))).isLessThanOrEqualTo(recordBytes);
+    }
+
+    // the minimum of several rounds so that rounds that run before the JIT has compiled the operation are ignored
+    private static long allocatedBytesPerCall(IntFunction<Object> operation) {
+        var results = new Object[ITERATIONS];
+        long threadId = Thread.currentThread().getId();
+        long minimum = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ITERATIONS; ++i) {
+                results[i] = operation.apply(i);
+            }
+            minimum = Math.min(minimum, (threadMXBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS);
+        }
+        assertThat(results[ITERATIONS - 1]).isNotNull();
+        return minimum;
+    }
+}
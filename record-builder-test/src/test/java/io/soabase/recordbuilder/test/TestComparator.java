@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import io.soabase.recordbuilder.test.SortableRecord.Level;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TestComparator {
+    private static final String[] names = { null, "", "a", "a\0", "a\0b", "a\u0001", "ab", "b", "\uD83D\uDE00",
+            "\uFFFF", "\u00E9" };
+    private static final double[] scores = { Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, Double.MIN_VALUE, 2.5,
+            Double.POSITIVE_INFINITY, Double.NaN };
+
+    private static final Comparator<SortableRecord> reference = Comparator
+            .comparing(SortableRecord::name, Comparator.nullsFirst(Comparator.<String> naturalOrder()))
+            .thenComparingInt(SortableRecord::count).thenComparingDouble(SortableRecord::score)
+            .thenComparing(SortableRecord::level, Comparator.nullsFirst(Comparator.<Level> naturalOrder()))
+            .thenComparing(SortableRecord::flag)
+            .thenComparing(SortableRecord::when, Comparator.nullsFirst(Comparator.<Instant> naturalOrder()))
+            .thenComparingLong(SortableRecord::id);
+
+    @Test
+    void testComparatorMatchesReference() {
+        var random = new Random(1234);
+        List<SortableRecord> records = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            records.add(randomRecord(random, true));
+        }
+
+        var sorted = new ArrayList<>(records);
+        sorted.sort(SortableRecordBuilder.comparator());
+        var expected = new ArrayList<>(records);
+        expected.sort(reference);
+        assertEquals(expected, sorted);
+
+        for (int i = 0; i < 2000; ++i) {
+            var a = records.get(random.nextInt(records.size()));
+            var b = records.get(random.nextInt(records.size()));
+            assertEquals(Integer.signum(reference.compare(a, b)), Integer.signum(SortableRecordBuilder.compare(a, b)));
+        }
+    }
+
+    @Test
+    void testSortKeyMatchesComparator() {
+        var random = new Random(5678);
+        var buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 5000; ++i) {
+            // components after the first non-encodable one are fixed so that keys fully determine the order
+            var a = randomRecord(random, false);
+            var b = randomRecord(random, false);
+            assertEquals(Integer.signum(SortableRecordBuilder.compare(a, b)),
+                    Integer.signum(Arrays.compareUnsigned(sortKey(a, buffer), sortKey(b, buffer))));
+        }
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+    }
+
+    @Test
+    void testComponentSubset() {
+        var records = new ArrayList<>(List.of(new SortableSubset<>("b", new Object(), 1.0f),
+                new SortableSubset<>("a", new Object(), 1.0f), new SortableSubset<>("z", new Object(), -1.0f)));
+        records.sort(SortableSubsetBuilder.comparator());
+        assertEquals(List.of("z", "a", "b"), records.stream().map(SortableSubset::name).toList());
+
+        var buffer = ByteBuffer.allocate(64);
+        var first = sortKey(records.get(0), buffer);
+        var second = sortKey(records.get(1), buffer);
+        assertFalse(Arrays.compareUnsigned(first, second) >= 0);
+    }
+
+    private static byte[] sortKey(SortableRecord record, ByteBuffer buffer) {
+        buffer.clear();
+        SortableRecordBuilder.sortKey(record, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static <T> byte[] sortKey(SortableSubset<T> record, ByteBuffer buffer) {
+        buffer.clear();
+        SortableSubsetBuilder.sortKey(record, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static SortableRecord randomRecord(Random random, boolean varyTrailing) {
+        var name = names[random.nextInt(names.length)];
+        var count = random.nextInt(3) - 1 + (random.nextBoolean() ? 0 : Integer.MIN_VALUE);
+        var score = scores[random.nextInt(scores.length)];
+        var level = random.nextInt(4) == 0 ? null : Level.values()[random.nextInt(Level.values().length)];
+        var flag = random.nextBoolean();
+        var when = varyTrailing ? (random.nextBoolean() ? null : Instant.ofEpochSecond(random.nextInt(3)))
+                : Instant.EPOCH;
+        var id = varyTrailing ? random.nextLong() : 0;
+        return new SortableRecord(name, count, score, level, flag, when, id, List.of());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestGenerationProfile {
+    @Test
+    void testLeanBuilder() {
+        var child = LeanFullRecordBuilder.builder().justAString("child").build();
+        var record = LeanFullRecordBuilder.builder().addNumbers(1).addNumbers(List.of(2, 3)).addFullRecords(1, child)
+                .addFullRecords(Map.of(2, child)).justAString("a").build();
+        assertEquals(List.of(1, 2, 3), record.numbers());
+        assertEquals(Map.of(1, child, 2, child), record.fullRecords());
+        assertEquals("b", record.withJustAString("b").justAString());
+        assertEquals("c", record.with().justAString("c").build().justAString());
+    }
+
+    @Test
+    void testLeanOmissions() {
+        assertThrows(NoSuchMethodException.class, () -> LeanFullRecordBuilder.class.getDeclaredMethod("toString"));
+        assertThrows(NoSuchMethodException.class, () -> LeanFullRecordBuilder.class.getDeclaredMethod("hashCode"));
+        assertThrows(NoSuchMethodException.class,
+                () -> LeanFullRecordBuilder.class.getDeclaredMethod("equals", Object.class));
+        assertThrows(NoSuchMethodException.class,
+                () -> LeanFullRecordBuilder.class.getDeclaredMethod("stream", LeanFullRecord.class));
+        assertThrows(NoSuchMethodException.class,
+                () -> LeanFullRecordBuilder.class.getDeclaredMethod("from", LeanFullRecord.class));
+        assertThrows(NoSuchMethodException.class,
+                () -> LeanFullRecordBuilder.With.class.getDeclaredMethod("with", Consumer.class));
+        assertTrue(Arrays.stream(LeanFullRecordBuilder.class.getDeclaredClasses())
+                .noneMatch(clazz -> clazz.getSimpleName().equals("_FromWith")));
+        assertTrue(Arrays.stream(LeanFullRecordBuilder.class.getDeclaredMethods())
+                .flatMap(method -> Arrays.stream(method.getParameterTypes()))
+                .noneMatch(parameterType -> parameterType == Stream.class));
+
+        // sanity check that the full profile has them
+        assertTrue(Arrays.stream(FullRecordBuilder.class.getDeclaredClasses())
+                .anyMatch(clazz -> clazz.getSimpleName().equals("_FromWith")));
+    }
+
+    @Test
+    void testClassSizeSavings() {
+        long fullSize = classSize(FullRecordBuilder.class);
+        long leanSize = classSize(LeanFullRecordBuilder.class);
+        // the lean builder is about 25% smaller at the time of writing
+        assertTrue(leanSize < 0.85 * fullSize, () -> "full: " + fullSize + " lean: " + leanSize);
+    }
+
+    // the size of the class file of the given class and all of its nested classes
+    private static long classSize(Class<?> clazz) {
+        var resourceName = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class";
+        long size;
+        try (InputStream in = clazz.getResourceAsStream(resourceName)) {
+            size = in.readAllBytes().length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return size + Arrays.stream(clazz.getDeclaredClasses()).mapToLong(TestGenerationProfile::classSize).sum();
+    }
+}
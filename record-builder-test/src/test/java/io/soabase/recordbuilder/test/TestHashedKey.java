@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestHashedKey {
+    private static final AtomicInteger hashCalls = new AtomicInteger();
+
+    private record Counted(String value) {
+        @Override
+        public int hashCode() {
+            hashCalls.incrementAndGet();
+            return value.hashCode();
+        }
+    }
+
+    @Test
+    void testKeyEquality() {
+        var record = new HashedKeyRecord<>("us", List.of("a", "b"), Map.of("x", 1));
+        var key = HashedKeyRecordBuilder.key(record);
+        var other = HashedKeyRecordBuilder.<String> builder().region("us").items(List.of("a", "b"))
+                .counts(Map.of("x", 1)).buildKey();
+
+        assertSame(record, key.record());
+        assertEquals(key, other);
+        assertEquals(record.hashCode(), key.hashCode());
+        assertEquals(key.hashCode(), other.hashCode());
+        assertNotEquals(key, HashedKeyRecordBuilder.key(new HashedKeyRecord<>("eu", List.of("a", "b"), Map.of())));
+        assertEquals("Key[" + record + "]", key.toString());
+        assertThrows(NullPointerException.class, () -> HashedKeyRecordBuilder.key(null));
+    }
+
+    @Test
+    void testHashIsComputedOnce() {
+        var key = HashedKeyRecordBuilder.<Counted> builder().region("us")
+                .items(List.of(new Counted("a"), new Counted("b"))).counts(Map.of()).buildKey();
+        hashCalls.set(0);
+
+        Map<HashedKeyRecordBuilder.Key<Counted>, String> map = new HashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            map.put(key, "value");
+            assertEquals("value", map.get(key));
+        }
+        assertEquals(0, hashCalls.get());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import io.soabase.recordbuilder.runtime.RecordInterner;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TestInterning {
+    @Test
+    void testBuildInterned() {
+        var first = InternedPairBuilder.<String> builder().base(new String("EUR")).quote("USD").buildInterned();
+        var second = InternedPairBuilder.<String> builder().base(new String("EUR")).quote("USD").buildInterned();
+        var other = InternedPairBuilder.<String> builder().base("EUR").quote("GBP").buildInterned();
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertSame(first, InternedPairBuilder.intern(new InternedPair<>("EUR", "USD")));
+        assertEquals(new InternedPair<>("EUR", "GBP"), other);
+    }
+
+    @Test
+    void testConcurrentInterning() {
+        var interner = new RecordInterner();
+        List<Point> interned = IntStream.range(0, 10_000).parallel()
+                .mapToObj(i -> interner.intern(new Point(i % 100, 0))).toList();
+
+        Set<Point> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(interned);
+        assertEquals(100, distinct.size());
+        assertEquals(100, interner.size());
+        IntStream.range(0, 10_000).forEach(i -> assertSame(interned.get(i), interner.intern(new Point(i % 100, 0))));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import io.soabase.recordbuilder.runtime.PersistentList;
+import io.soabase.recordbuilder.runtime.PersistentMap;
+import io.soabase.recordbuilder.runtime.PersistentSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestPersistentCollections {
+    @Test
+    void testBuilderUsesPersistentCollections() {
+        var record = PersistentCollectionsRecordBuilder.<Integer> builder().addList("a").addList("b").addSet(1)
+                .addMap("one", 1).collection(List.of(1, 2)).build();
+
+        assertTrue(record.list() instanceof PersistentList);
+        assertTrue(record.set() instanceof PersistentSet);
+        assertTrue(record.map() instanceof PersistentMap);
+        assertTrue(record.collection() instanceof PersistentList);
+        assertEquals(List.of("a", "b"), record.list());
+        assertEquals(Set.of(1), record.set());
+        assertEquals(Map.of("one", 1), record.map());
+        assertEquals(List.of(1, 2), record.collection());
+        assertThrows(UnsupportedOperationException.class, () -> record.list().add("c"));
+
+        var empty = PersistentCollectionsRecordBuilder.builder().build();
+        assertEquals(List.of(), empty.list());
+        assertEquals(Set.of(), empty.set());
+        assertEquals(Map.of(), empty.map());
+    }
+
+    @Test
+    void testCopyBuilderSharesStructure() {
+        var record = PersistentCollectionsRecordBuilder.<Integer> builder()
+                .addList(IntStream.range(0, 100_000).mapToObj(Integer::toString).toList()).build();
+
+        var unchanged = record.with().count(5).build();
+        assertSame(record.list(), unchanged.list());
+
+        var changed = PersistentCollectionsRecordBuilder.builder(record).addList("new").addMap("key", 1).build();
+        assertEquals(100_000, record.list().size());
+        assertEquals(100_001, changed.list().size());
+        assertEquals("new", changed.list().get(100_000));
+        assertEquals(Map.of(), record.map());
+        assertEquals(Map.of("key", 1), changed.map());
+
+        var builder = PersistentCollectionsRecordBuilder.builder(changed);
+        var first = builder.addList("more").build();
+        var second = builder.addList("again").build();
+        assertEquals(100_002, first.list().size());
+        assertEquals(100_003, second.list().size());
+    }
+
+    @Test
+    void testListMatchesArrayList() {
+        var random = new Random(1234);
+        List<Integer> expected = new ArrayList<>();
+        PersistentList<Integer> list = PersistentList.of();
+        List<PersistentList<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 40_000; ++i) {
+            if (!expected.isEmpty() && (random.nextInt(10) == 0)) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -i);
+                list = list.with(index, -i);
+            } else {
+                expected.add(i);
+                list = list.plus(i);
+            }
+            if ((i % 5_000) == 0) {
+                versions.add(list);
+                expectedVersions.add(new ArrayList<>(expected));
+            }
+        }
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+        assertEquals(expected.hashCode(), list.hashCode());
+        assertEquals(expected, PersistentList.copyOf(expected));
+        for (int i = 0; i < versions.size(); ++i) {
+            assertEquals(expectedVersions.get(i), versions.get(i));
+        }
+
+        var mutable = new PersistentList.Mutable<>(list);
+        assertSame(list, mutable.toPersistent());
+        mutable.add(1, 99);
+        mutable.remove(0);
+        expected.add(1, 99);
+        expected.remove(0);
+        assertEquals(expected, mutable);
+        assertEquals(expected, mutable.toPersistent());
+    }
+
+    @Test
+    void testMapMatchesHashMap() {
+        var random = new Random(5678);
+        Map<CollidingKey, Integer> expected = new HashMap<>();
+        PersistentMap<CollidingKey, Integer> map = PersistentMap.of();
+        for (int i = 0; i < 50_000; ++i) {
+            var key = new CollidingKey(random.nextInt(20_000));
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (Map.Entry<CollidingKey, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertNull(map.get(new CollidingKey(-1)));
+
+        PersistentMap<CollidingKey, Integer> emptied = map;
+        for (CollidingKey key : expected.keySet()) {
+            emptied = emptied.minus(key);
+        }
+        assertEquals(0, emptied.size());
+        assertEquals(Map.of(), emptied);
+
+        var withNulls = PersistentMap.<String, String> of().plus(null, "a").plus("b", null);
+        assertEquals("a", withNulls.get(null));
+        assertEquals(2, withNulls.size());
+    }
+
+    @Test
+    void testSetMatchesHashSet() {
+        var random = new Random(9012);
+        Set<CollidingKey> expected = new HashSet<>();
+        var mutable = new PersistentSet.Mutable<CollidingKey>();
+        for (int i = 0; i < 20_000; ++i) {
+            var key = new CollidingKey(random.nextInt(5_000));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), mutable.remove(key));
+            } else {
+                assertEquals(expected.add(key), mutable.add(key));
+            }
+        }
+        assertEquals(expected, mutable);
+        assertEquals(expected, mutable.toPersistent());
+        mutable.removeIf(key -> (key.value() % 2) == 0);
+        expected.removeIf(key -> (key.value() % 2) == 0);
+        assertEquals(expected, mutable.toPersistent());
+    }
+
+    // few distinct hash codes so that the trie has deep paths and hash collisions
+    private record CollidingKey(int value) {
+        @Override
+        public int hashCode() {
+            return value % 1_000;
+        }
+    }
+}
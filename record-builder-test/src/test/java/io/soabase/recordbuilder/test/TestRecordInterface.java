@@ -61,4 +61,24 @@ public class TestRecordInterface {
         Assertions.assertEquals(stream,
                 List.of(new SimpleImmutableEntry<>("i", 0), new SimpleImmutableEntry<>("s", null)));
     }
+
+    @Test
+    public void testCachedHashCode() {
+        var key = new CachedHashKeyRecord<>("key", 1.5, List.of(1, 2, 3));
+        var same = new CachedHashKeyRecord<>("key", 1.5, List.of(1, 2, 3), 12345);
+        Assertions.assertEquals(key, same);
+        Assertions.assertEquals(key.hashCode(), same.hashCode());
+        Assertions.assertEquals(key._hashCode(), same._hashCode());
+        Assertions.assertEquals("CachedHashKeyRecord[name=key, weight=1.5, parts=[1, 2, 3]]", key.toString());
+
+        var changed = CachedHashKeyRecordBuilder.builder(key).name("other").build();
+        Assertions.assertNotEquals(key, changed);
+        Assertions.assertEquals(new CachedHashKeyRecord<>("other", 1.5, List.of(1, 2, 3)), changed);
+        Assertions.assertEquals(new CachedHashKeyRecord<>("other", 1.5, List.of(1, 2, 3)).hashCode(),
+                changed.hashCode());
+
+        Map<CachedHashKey<Integer>, String> map = Map.of(key, "value");
+        Assertions.assertEquals("value", map.get(same));
+        Assertions.assertNotEquals(new CachedHashKeyRecord<>("key", 1.5, List.of()), key);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test;
+
+import io.soabase.recordbuilder.runtime.PersistentList;
+import io.soabase.recordbuilder.runtime.PersistentMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestRuntimeCollectionShims {
+    @Test
+    void testNoPrivateShimsAreGenerated() {
+        assertTrue(Arrays.stream(RuntimeShimsRecordBuilder.class.getDeclaredClasses())
+                .noneMatch(clazz -> clazz.getSimpleName().contains("Mutable")));
+        assertTrue(Arrays.stream(RuntimeShimsRecordBuilder.class.getDeclaredMethods())
+                .noneMatch(method -> method.getName().startsWith("__")));
+        assertTrue(Arrays.stream(RuntimeShimsPersistentRecordBuilder.class.getDeclaredClasses())
+                .noneMatch(clazz -> clazz.getSimpleName().contains("Mutable")));
+        assertTrue(Arrays.stream(RuntimeShimsPersistentRecordBuilder.class.getDeclaredMethods())
+                .noneMatch(method -> method.getName().startsWith("__")));
+    }
+
+    @Test
+    void testImmutableShims() {
+        var source = new ArrayList<>(List.of("a"));
+        var record = RuntimeShimsRecordBuilder.<Integer> builder().list(source).addList("b").addSet(1).addMap("one", 1)
+                .collection(Set.of(2)).build();
+
+        assertEquals(List.of("a", "b"), record.list());
+        assertEquals(List.of("a"), source);
+        assertEquals(Set.of(1), record.set());
+        assertEquals(Map.of("one", 1), record.map());
+        assertEquals(Set.of(2), record.collection());
+        assertThrows(UnsupportedOperationException.class, () -> record.list().add("c"));
+
+        var unchanged = record.with().count(1).build();
+        assertSame(record.list(), unchanged.list());
+
+        var changed = RuntimeShimsRecordBuilder.builder(record).addList("c").build();
+        assertEquals(List.of("a", "b"), record.list());
+        assertEquals(List.of("a", "b", "c"), changed.list());
+
+        var empty = RuntimeShimsRecordBuilder.builder().build();
+        assertEquals(List.of(), empty.list());
+        assertEquals(Set.of(), empty.set());
+        assertEquals(Map.of(), empty.map());
+        assertEquals(List.of(), empty.collection());
+    }
+
+    @Test
+    void testPersistentShims() {
+        var record = RuntimeShimsPersistentRecordBuilder.builder().addList("a").addMap("one", 1).build();
+        assertTrue(record.list() instanceof PersistentList);
+        assertTrue(record.map() instanceof PersistentMap);
+        assertEquals(List.of("a"), record.list());
+        assertEquals(Map.of("one", 1), record.map());
+
+        var changed = RuntimeShimsPersistentRecordBuilder.builder(record).addList("b").build();
+        assertEquals(List.of("a"), record.list());
+        assertEquals(List.of("a", "b"), changed.list());
+        assertSame(record.map(), changed.map());
+
+        var empty = RuntimeShimsPersistentRecordBuilder.builder().build();
+        assertNull(empty.list());
+        assertNull(empty.map());
+    }
+}
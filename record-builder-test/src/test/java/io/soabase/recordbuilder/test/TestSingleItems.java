@@ -19,7 +19,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,4 +60,26 @@ public class TestSingleItems {
         Assertions.assertEquals(nulls.sets(), Set.of());
         Assertions.assertEquals(nulls.strings(), List.of());
     }
+
+    @Test
+    public void testBulkAdders() {
+        var now = Instant.now();
+        var strings = new ArrayList<>(List.of("a", "b"));
+        var map = new HashMap<>(Map.of(now, "now"));
+        var builder = SingleItemsBuilder.<String> builder().add1Strings(strings).add1Map(map);
+        strings.add("not-added");
+        map.put(Instant.MIN, "not-added");
+
+        builder.add1Strings(List.of("c")).add1Strings(() -> List.of("d").iterator())
+                .add1Map(Map.of(Instant.MAX, "after"));
+        var item = builder.build();
+        Assertions.assertEquals(List.of("a", "b", "c", "d"), item.strings());
+        Assertions.assertEquals(Map.of(now, "now", Instant.MAX, "after"), item.map());
+
+        var copy = SingleItemsBuilder.builder(item).add1Strings(List.of("e")).add1Map(Map.of(Instant.MIN, "before"))
+                .build();
+        Assertions.assertEquals(List.of("a", "b", "c", "d", "e"), copy.strings());
+        Assertions.assertEquals(Map.of(now, "now", Instant.MAX, "after", Instant.MIN, "before"), copy.map());
+        Assertions.assertEquals(List.of("a", "b", "c", "d"), item.strings());
+    }
 }
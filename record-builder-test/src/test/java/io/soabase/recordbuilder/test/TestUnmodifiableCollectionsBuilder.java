@@ -22,12 +22,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static java.util.Map.entry;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestUnmodifiableCollectionsBuilder {
@@ -69,4 +71,21 @@ public class TestUnmodifiableCollectionsBuilder {
                 () -> assertThrows(UnsupportedOperationException.class, () -> record.aCollection().add("newElement")),
                 () -> assertThat(record.aCollection()).containsExactlyInAnyOrder("C", "B", "A"));
     }
+
+    @Test
+    void shouldReuseCollectionsWhenCopyBuilderDoesNotChangeThem() {
+        // given
+        var record = UnmodifiableCollectionsRecordBuilder.builder().aList(new ArrayList<>(List.of(1, 2)))
+                .orderedSet(new LinkedHashSet<>(Set.of("A"))).orderedMap(new LinkedHashMap<>(Map.of("A", 1)))
+                .aCollection(new ArrayList<>(List.of("B"))).build();
+
+        // when
+        var copy = UnmodifiableCollectionsRecordBuilder.builder(record).build();
+
+        // then
+        assertAll(() -> assertSame(record.aList(), copy.aList()),
+                () -> assertSame(record.orderedSet(), copy.orderedSet()),
+                () -> assertSame(record.orderedMap(), copy.orderedMap()),
+                () -> assertSame(record.aCollection(), copy.aCollection()));
+    }
 }
@@ -18,6 +18,7 @@ package io.soabase.recordbuilder.test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 class TestWithers {
@@ -32,6 +33,43 @@ class TestWithers {
         Assertions.assertEquals(20, r3.i());
     }
 
+    @Test
+    void testStaticWithers() {
+        var r1 = new StaticWithers<>(10, "ten", List.of("1", "2"));
+        var r2 = StaticWithersBuilder.withThing(r1, "twenty");
+        var r3 = StaticWithersBuilder.withI(r2, 20);
+        var r4 = StaticWithersBuilder.withStrings(r3, null);
+        Assertions.assertEquals(new StaticWithers<>(10, "ten", List.of("1", "2")), r1);
+        Assertions.assertEquals(new StaticWithers<>(10, "twenty", List.of("1", "2")), r2);
+        Assertions.assertEquals(new StaticWithers<>(20, "twenty", List.of("1", "2")), r3);
+        Assertions.assertEquals(List.of(), r4.strings());
+    }
+
+    @Test
+    void testCompactWithers() {
+        var r1 = new CompactWithers<>(10, "ten", List.of("1", "2"), 1.5, "name");
+        Assertions.assertEquals(new CompactWithers<>(20, "ten", List.of("1", "2"), 1.5, "name"), r1.withI(20));
+        Assertions.assertEquals(new CompactWithers<>(10, "twenty", List.of("1", "2"), 1.5, "name"),
+                r1.withThing("twenty"));
+        Assertions.assertEquals(new CompactWithers<>(10, "ten", List.of("3"), 1.5, "name"),
+                r1.withStrings(List.of("3")));
+        Assertions.assertEquals(new CompactWithers<>(10, "ten", List.of("1", "2"), -2.25, "name"), r1.withD(-2.25));
+        Assertions.assertEquals(Double.MAX_VALUE, r1.withD(Double.MAX_VALUE).d());
+        Assertions.assertEquals(new CompactWithers<>(10, "ten", List.of("1", "2"), 1.5, "other"), r1.withName("other"));
+        Assertions.assertEquals(new CompactWithers<>(10, "ten", List.of("1", "2"), 1.5, "name"), r1);
+
+        // collections pass through the shim
+        var mutable = new ArrayList<>(List.of("a"));
+        var r2 = r1.withStrings(mutable);
+        mutable.add("b");
+        Assertions.assertEquals(List.of("a"), r2.strings());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> r2.strings().add("c"));
+        Assertions.assertEquals(List.of(), r1.withStrings(null).strings());
+
+        Assertions.assertThrows(NullPointerException.class, () -> r1.withName(null));
+        Assertions.assertNull(r1.withThing(null).thing());
+    }
+
     @Test
     void testWithers() {
         var r1 = new SimpleGenericRecord<>(10, List.of("1", "2", "3"));
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+import io.soabase.recordbuilder.processor.RecordBuilderProcessor;
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs javac in-process with {@link RecordBuilderProcessor} over a set of synthesized sources. Sources, generated
+ * sources and class files are written to sub-directories of the given directory so that the directory can be reused
+ * across compilations.
+ */
+public class InProcessCompiler {
+    private final Path sourceDirectory;
+    private final Path generatedDirectory;
+    private final Path classesDirectory;
+    private final List<Path> sources = new ArrayList<>();
+    private final List<Path> classPath = new ArrayList<>();
+    private Supplier<Processor> processorSupplier = RecordBuilderProcessor::new;
+
+    public record Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        public String errors() {
+            return diagnostics.stream().filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString).collect(Collectors.joining("\n"));
+        }
+    }
+
+    public InProcessCompiler(Path directory) {
+        sourceDirectory = directory.resolve("src");
+        generatedDirectory = directory.resolve("generated");
+        classesDirectory = directory.resolve("classes");
+    }
+
+    public InProcessCompiler withProcessor(Supplier<Processor> processorSupplier) {
+        this.processorSupplier = processorSupplier;
+        return this;
+    }
+
+    public InProcessCompiler addClassPath(Path path) {
+        classPath.add(path);
+        return this;
+    }
+
+    public InProcessCompiler addSource(String qualifiedName, String source) {
+        Path path = sourceDirectory.resolve(qualifiedName.replace('.', '/') + ".java");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sources.add(path);
+        return this;
+    }
+
+    public Result compile(String... options) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT,
+                StandardCharsets.UTF_8)) {
+            Files.createDirectories(generatedDirectory);
+            Files.createDirectories(classesDirectory);
+
+            List<String> arguments = new ArrayList<>(List.of("-classpath", classPath(), "-d",
+                    classesDirectory.toString(), "-s", generatedDirectory.toString(), "-implicit:none"));
+            arguments.addAll(List.of(options));
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, arguments, null,
+                    fileManager.getJavaFileObjectsFromPaths(sources));
+            task.setProcessors(List.of(processorSupplier.get()));
+            boolean success = task.call();
+            return new Result(success, List.copyOf(diagnostics.getDiagnostics()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the generated sources keyed by their path relative to the generated sources directory
+     */
+    public Map<String, String> generatedSources() {
+        return readFiles(generatedDirectory, ".java", path -> {
+            try {
+                return Files.readString(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the compiled class files keyed by their path relative to the classes directory
+     */
+    public Map<String, byte[]> classFiles() {
+        return readFiles(classesDirectory, ".class", path -> {
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public Path generatedDirectory() {
+        return generatedDirectory;
+    }
+
+    public Path classesDirectory() {
+        return classesDirectory;
+    }
+
+    private <T> Map<String, T> readFiles(Path directory, String extension, Function<Path, T> reader) {
+        if (!Files.isDirectory(directory)) {
+            return Map.of();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(path -> path.toString().endsWith(extension)).collect(
+                    Collectors.toMap(path -> directory.relativize(path).toString(), reader, (a, b) -> a, TreeMap::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String classPath() {
+        return Stream
+                .concat(Stream.of(RecordBuilder.class, RecordBuilderProcessor.class).map(InProcessCompiler::location),
+                        classPath.stream().map(Path::toString))
+                .distinct().collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static String location(Class<?> clazz) {
+        try {
+            return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import io.soabase.recordbuilder.processor.RecordBuilderProcessor;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compile-time benchmark for {@link RecordBuilderProcessor}. Synthesizes a source tree of records and compiles it
+ * in-process, with and without the processor, reporting wall time, time spent in the processor and peak heap usage. Run
+ * it via {@link TestProcessorBenchmark} - e.g.
+ * {@code mvn test -pl record-builder-test -Dtest=TestProcessorBenchmark -Drecordbuilder.benchmark=true -Drecordbuilder.benchmark.records=2000}.
+ * See {@link Config#fromSystemProperties()} for the available properties. Peak heap is the sum of the peak usage of the
+ * heap memory pools and is therefore approximate.
+ */
+public class ProcessorBenchmark {
+    private static final String PACKAGE = "bench";
+    private static final int RECORDS_PER_PACKAGE = 100;
+    private static final String PROPERTY_PREFIX = "recordbuilder.benchmark.";
+
+    /**
+     * @param records
+     *            number of records to generate
+     * @param components
+     *            number of components per record
+     * @param templates
+     *            if true, records are annotated with a {@code @RecordBuilder.Template} annotation instead of
+     *            {@code @RecordBuilder}
+     * @param includes
+     *            if true, records are not annotated and are generated via
+     *            {@code @RecordBuilder.Include(packages = ...)}
+     * @param staged
+     *            if true, {@code builderMode = STANDARD_AND_STAGED} is used
+     * @param collections
+     *            if true, some components are collections and {@code useImmutableCollections} and
+     *            {@code addSingleItemCollectionBuilders} are used
+     * @param warmups
+     *            number of unmeasured compilations before the measured ones
+     * @param iterations
+     *            number of measured compilations
+     * @param compilerOptions
+     *            additional compiler options (e.g. {@code -AparallelGeneration=true})
+     */
+    public record Config(int records, int components, boolean templates, boolean includes, boolean staged,
+            boolean collections, int warmups, int iterations, List<String> compilerOptions) {
+        public Config {
+            compilerOptions = List.copyOf(compilerOptions);
+        }
+
+        /**
+         * Read the configuration from {@code recordbuilder.benchmark.*} system properties: {@code records} (default
+         * 500), {@code components} (default 8), {@code templates}, {@code includes}, {@code staged},
+         * {@code collections} (default false), {@code warmups} (default 2), {@code iterations} (default 5) and
+         * {@code options} (comma separated compiler options)
+         */
+        public static Config fromSystemProperties() {
+            var options = System.getProperty(PROPERTY_PREFIX + "options", "");
+            return new Config(Integer.getInteger(PROPERTY_PREFIX + "records", 500),
+                    Integer.getInteger(PROPERTY_PREFIX + "components", 8),
+                    Boolean.getBoolean(PROPERTY_PREFIX + "templates"), Boolean.getBoolean(PROPERTY_PREFIX + "includes"),
+                    Boolean.getBoolean(PROPERTY_PREFIX + "staged"), Boolean.getBoolean(PROPERTY_PREFIX + "collections"),
+                    Integer.getInteger(PROPERTY_PREFIX + "warmups", 2),
+                    Integer.getInteger(PROPERTY_PREFIX + "iterations", 5),
+                    Arrays.stream(options.split(",")).map(String::trim).filter(option -> !option.isEmpty()).toList());
+        }
+    }
+
+    public record Measurement(long wallNanos, long processorNanos, long peakHeapBytes, int generatedSources) {
+    }
+
+    public record Report(Config config, List<Measurement> withProcessor, List<Measurement> withoutProcessor) {
+        public Report {
+            withProcessor = List.copyOf(withProcessor);
+            withoutProcessor = List.copyOf(withoutProcessor);
+        }
+
+        public String format() {
+            var joiner = new StringJoiner("\n");
+            joiner.add(config.toString());
+            joiner.add(
+                    "%-18s %12s %12s %14s %10s".formatted("", "wall ms", "processor ms", "peak heap MB", "generated"));
+            joiner.add(formatLine("with processor", withProcessor));
+            joiner.add(formatLine("without processor", withoutProcessor));
+            return joiner.toString();
+        }
+
+        private static String formatLine(String name, List<Measurement> measurements) {
+            return "%-18s %12d %12d %14d %10d".formatted(name, median(measurements, Measurement::wallNanos) / 1_000_000,
+                    median(measurements, Measurement::processorNanos) / 1_000_000,
+                    measurements.stream().mapToLong(Measurement::peakHeapBytes).max().orElse(0) / (1024 * 1024),
+                    measurements.isEmpty() ? 0 : measurements.get(0).generatedSources());
+        }
+
+        private static long median(List<Measurement> measurements, ToLongFunction<Measurement> value) {
+            long[] values = measurements.stream().mapToLong(value).sorted().toArray();
+            return (values.length == 0) ? 0 : values[values.length / 2];
+        }
+    }
+
+    public static Report run(Config config, Path directory) {
+        List<Measurement> withProcessor = new ArrayList<>();
+        List<Measurement> withoutProcessor = new ArrayList<>();
+        int run = 0;
+        for (int i = 0; i < (config.warmups() + config.iterations()); ++i) {
+            boolean measured = i >= config.warmups();
+            var with = compile(config, directory.resolve("run" + run++), true);
+            var without = compile(config, directory.resolve("run" + run++), false);
+            if (measured) {
+                withProcessor.add(with);
+                withoutProcessor.add(without);
+            }
+        }
+        return new Report(config, withProcessor, withoutProcessor);
+    }
+
+    private static Measurement compile(Config config, Path directory, boolean useProcessor) {
+        var processorNanos = new AtomicLong();
+        var compiler = addSources(config, new InProcessCompiler(directory))
+                .withProcessor(() -> new TimingProcessor(new RecordBuilderProcessor(), processorNanos));
+        List<String> options = new ArrayList<>(config.compilerOptions());
+        if (!useProcessor) {
+            options.add("-proc:none");
+        }
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        var result = compiler.compile(options.toArray(String[]::new));
+        long wallNanos = System.nanoTime() - start;
+
+        long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        if (!result.success()) {
+            throw new IllegalStateException("Benchmark compilation failed: " + result.errors());
+        }
+        return new Measurement(wallNanos, processorNanos.get(), peakHeapBytes, compiler.generatedSources().size());
+    }
+
+    private static InProcessCompiler addSources(Config config, InProcessCompiler compiler) {
+        var options = options(config);
+        String annotation;
+        if (config.templates()) {
+            compiler.addSource(PACKAGE + ".BenchBuilder", """
+                    package %s;
+
+                    import io.soabase.recordbuilder.core.RecordBuilder;
+                    import java.lang.annotation.*;
+
+                    @RecordBuilder.Template(options = @RecordBuilder.Options(%s))
+                    @Retention(RetentionPolicy.SOURCE)
+                    @Target(ElementType.TYPE)
+                    @Inherited
+                    public @interface BenchBuilder {
+                    }
+                    """.formatted(PACKAGE, options));
+            annotation = "@" + PACKAGE + ".BenchBuilder";
+        } else if (config.includes()) {
+            var packages = packages(config).stream().map(name -> '"' + name + '"').collect(Collectors.joining(", "));
+            compiler.addSource(PACKAGE + ".Includes", """
+                    package %s;
+
+                    import io.soabase.recordbuilder.core.RecordBuilder;
+
+                    @RecordBuilder.Include(packages = {%s}, packagePattern = "*")
+                    @RecordBuilder.Options(%s)
+                    public class Includes {
+                    }
+                    """.formatted(PACKAGE, packages, options));
+            annotation = "";
+        } else {
+            annotation = "@io.soabase.recordbuilder.core.RecordBuilder\n@io.soabase.recordbuilder.core.RecordBuilder.Options("
+                    + options + ")";
+        }
+
+        for (int i = 0; i < config.records(); ++i) {
+            var packageName = packageName(i);
+            var components = new StringJoiner(", ");
+            for (int c = 0; c < config.components(); ++c) {
+                components.add(componentType(config, c) + " c" + c);
+            }
+            compiler.addSource(packageName + ".Record" + i, """
+                    package %s;
+
+                    import java.util.*;
+
+                    %s
+                    public record Record%d(%s) {
+                    }
+                    """.formatted(packageName, annotation, i, components));
+        }
+        return compiler;
+    }
+
+    private static String options(Config config) {
+        var options = new StringJoiner(", ");
+        if (config.staged()) {
+            options.add("builderMode = io.soabase.recordbuilder.core.RecordBuilder.BuilderMode.STANDARD_AND_STAGED");
+        }
+        if (config.collections()) {
+            options.add("useImmutableCollections = true");
+            options.add("addSingleItemCollectionBuilders = true");
+        }
+        return options.toString();
+    }
+
+    private static String componentType(Config config, int index) {
+        if (config.collections() && ((index % 8) >= 5)) {
+            return switch (index % 8) {
+            case 5 -> "List<String>";
+            case 6 -> "Set<Long>";
+            default -> "Map<String, Integer>";
+            };
+        }
+        return switch (index % 5) {
+        case 0 -> "int";
+        case 1 -> "String";
+        case 2 -> "long";
+        case 3 -> "Optional<String>";
+        default -> "double";
+        };
+    }
+
+    private static List<String> packages(Config config) {
+        List<String> packages = new ArrayList<>();
+        for (int i = 0; i < config.records(); i += RECORDS_PER_PACKAGE) {
+            packages.add(packageName(i));
+        }
+        return packages;
+    }
+
+    private static String packageName(int recordIndex) {
+        return PACKAGE + ".p" + (recordIndex / RECORDS_PER_PACKAGE);
+    }
+
+    // measures the time spent in the processor itself (i.e. not including compiling the generated sources)
+    private static class TimingProcessor implements Processor {
+        private final Processor processor;
+        private final AtomicLong nanos;
+
+        private TimingProcessor(Processor processor, AtomicLong nanos) {
+            this.processor = processor;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return processor.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return processor.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return processor.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            long start = System.nanoTime();
+            processor.init(processingEnv);
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = System.nanoTime();
+            try {
+                return processor.process(annotations, roundEnv);
+            } finally {
+                nanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                ExecutableElement member, String userText) {
+            return processor.getCompletions(element, annotation, member, userText);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+import io.soabase.recordbuilder.processor.RecordBuilderProcessor;
+import io.soabase.recordbuilder.runtime.CollectionShims;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.ToLongFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Startup benchmark for generated builders. Synthesizes and compiles a source tree of records and then, in fresh JVMs,
+ * loads all of the generated builder classes (including their nested types) and makes a first call to each builder.
+ * Reports the JVM process time, the time and metaspace needed to load the builder classes, the total time and median
+ * latency of the first calls and the metaspace used at exit. Optionally the same is measured with an AppCDS archive
+ * created by a training run. Run it via {@link TestStartupBenchmark} - e.g.
+ * {@code mvn test -pl record-builder-test -Dtest=TestStartupBenchmark -Drecordbuilder.startup=true -Drecordbuilder.startup.records=5000}.
+ * See {@link Config#fromSystemProperties()} for the available properties.
+ */
+public class StartupBenchmark {
+    private static final String PACKAGE = "bench";
+    private static final String MAIN_CLASS = PACKAGE + ".StartupMain";
+    private static final String CALLS_CLASS = "Calls";
+    private static final int RECORDS_PER_PACKAGE = 100;
+    private static final String PROPERTY_PREFIX = "recordbuilder.startup.";
+    private static final String RESULT_PREFIX = "RESULT ";
+
+    /**
+     * @param records
+     *            number of records to generate
+     * @param components
+     *            number of components per record
+     * @param withers
+     *            if true, {@code enableWither} is used and records implement the {@code With} interface
+     * @param bean
+     *            if true, a {@code Bean} interface is generated and records implement it
+     * @param staged
+     *            if true, {@code builderMode = STANDARD_AND_STAGED} is used
+     * @param collections
+     *            if true, some components are collections and {@code useImmutableCollections} and
+     *            {@code addSingleItemCollectionBuilders} are used
+     * @param cds
+     *            if true, the measurements are repeated with an AppCDS archive
+     * @param iterations
+     *            number of JVMs launched for each measurement
+     * @param compilerOptions
+     *            additional compiler options (e.g. {@code -AuseRuntimeCollectionShims=true})
+     */
+    public record Config(int records, int components, boolean withers, boolean bean, boolean staged,
+            boolean collections, boolean cds, int iterations, List<String> compilerOptions) {
+        public Config {
+            compilerOptions = List.copyOf(compilerOptions);
+        }
+
+        /**
+         * Read the configuration from {@code recordbuilder.startup.*} system properties: {@code records} (default
+         * 2000), {@code components} (default 8), {@code withers}, {@code bean}, {@code staged}, {@code collections}
+         * (default true), {@code cds} (default false), {@code iterations} (default 5) and {@code options} (comma
+         * separated compiler options)
+         */
+        public static Config fromSystemProperties() {
+            var options = System.getProperty(PROPERTY_PREFIX + "options", "");
+            return new Config(Integer.getInteger(PROPERTY_PREFIX + "records", 2000),
+                    Integer.getInteger(PROPERTY_PREFIX + "components", 8), booleanProperty("withers"),
+                    booleanProperty("bean"), booleanProperty("staged"), booleanProperty("collections"),
+                    Boolean.getBoolean(PROPERTY_PREFIX + "cds"), Integer.getInteger(PROPERTY_PREFIX + "iterations", 5),
+                    Arrays.stream(options.split(",")).map(String::trim).filter(option -> !option.isEmpty()).toList());
+        }
+
+        private static boolean booleanProperty(String name) {
+            return Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + name, "true"));
+        }
+    }
+
+    public record Measurement(long processNanos, long loadNanos, long loadMetaspaceBytes, long firstCallsNanos,
+            long medianFirstCallNanos, long metaspaceBytes) {
+    }
+
+    public record Report(Config config, int builderClasses, long builderClassBytes, List<Measurement> measurements,
+            List<Measurement> cdsMeasurements) {
+        public Report {
+            measurements = List.copyOf(measurements);
+            cdsMeasurements = List.copyOf(cdsMeasurements);
+        }
+
+        public String format() {
+            var joiner = new StringJoiner("\n");
+            joiner.add(config.toString());
+            joiner.add("builder classes: %d (%d KB)".formatted(builderClasses, builderClassBytes / 1024));
+            joiner.add("%-8s %11s %9s %18s %15s %16s %14s".formatted("", "process ms", "load ms", "load metaspace KB",
+                    "first calls ms", "median call us", "metaspace KB"));
+            joiner.add(formatLine("default", measurements));
+            if (!cdsMeasurements.isEmpty()) {
+                joiner.add(formatLine("AppCDS", cdsMeasurements));
+            }
+            return joiner.toString();
+        }
+
+        private static String formatLine(String name, List<Measurement> measurements) {
+            return "%-8s %11d %9d %18d %15d %16d %14d".formatted(name,
+                    median(measurements, Measurement::processNanos) / 1_000_000,
+                    median(measurements, Measurement::loadNanos) / 1_000_000,
+                    median(measurements, Measurement::loadMetaspaceBytes) / 1024,
+                    median(measurements, Measurement::firstCallsNanos) / 1_000_000,
+                    median(measurements, Measurement::medianFirstCallNanos) / 1_000,
+                    median(measurements, Measurement::metaspaceBytes) / 1024);
+        }
+
+        private static long median(List<Measurement> measurements, ToLongFunction<Measurement> value) {
+            long[] values = measurements.stream().mapToLong(value).sorted().toArray();
+            return (values.length == 0) ? 0 : values[values.length / 2];
+        }
+    }
+
+    public static Report run(Config config, Path directory) {
+        var compiler = addSources(config, new InProcessCompiler(directory.resolve("compile")))
+                .withProcessor(RecordBuilderProcessor::new);
+        var result = compiler.compile(config.compilerOptions().toArray(String[]::new));
+        if (!result.success()) {
+            throw new IllegalStateException("Benchmark compilation failed: " + result.errors());
+        }
+
+        // binary names of the builders and their nested types
+        Map<String, byte[]> builderClassFiles = compiler.classFiles().entrySet().stream()
+                .filter(entry -> isBuilderClassFile(entry.getKey()))
+                .collect(Collectors.toMap(entry -> binaryName(entry.getKey()), Map.Entry::getValue));
+        var classNamesFile = directory.resolve("classes.txt");
+        var archive = directory.resolve("app.jsa");
+        List<String> classPath;
+        try {
+            Files.write(classNamesFile, builderClassFiles.keySet().stream().sorted().toList());
+            classPath = List.of(jar(compiler.classesDirectory(), directory.resolve("bench.jar")),
+                    jar(location(RecordBuilder.class), directory.resolve("core.jar")),
+                    jar(location(CollectionShims.class), directory.resolve("runtime.jar")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Measurement> measurements = new ArrayList<>();
+        List<Measurement> cdsMeasurements = new ArrayList<>();
+        for (int i = 0; i < config.iterations(); ++i) {
+            measurements.add(launch(config, classPath, classNamesFile));
+        }
+        if (config.cds()) {
+            // training run that dumps the classes loaded by the benchmark into a dynamic archive
+            launch(config, classPath, classNamesFile, "-XX:ArchiveClassesAtExit=" + archive);
+            for (int i = 0; i < config.iterations(); ++i) {
+                cdsMeasurements.add(launch(config, classPath, classNamesFile, "-XX:SharedArchiveFile=" + archive));
+            }
+        }
+        return new Report(config, builderClassFiles.size(),
+                builderClassFiles.values().stream().mapToLong(bytes -> bytes.length).sum(), measurements,
+                cdsMeasurements);
+    }
+
+    private static Measurement launch(Config config, List<String> classPath, Path classNamesFile,
+            String... jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(jvmOptions));
+        command.addAll(List.of("-cp", String.join(java.io.File.pathSeparator, classPath), MAIN_CLASS,
+                classNamesFile.toString(), Integer.toString(config.records())));
+
+        String output;
+        int exitCode;
+        long start = System.nanoTime();
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            exitCode = process.waitFor();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+        long processNanos = System.nanoTime() - start;
+
+        var resultLine = output.lines().filter(line -> line.startsWith(RESULT_PREFIX)).findFirst();
+        if ((exitCode != 0) || resultLine.isEmpty()) {
+            throw new IllegalStateException("Benchmark JVM failed (" + exitCode + "): " + output);
+        }
+        Map<String, Long> values = new HashMap<>();
+        Arrays.stream(resultLine.get().substring(RESULT_PREFIX.length()).split(" ")).map(value -> value.split("="))
+                .forEach(pair -> values.put(pair[0], Long.parseLong(pair[1])));
+        return new Measurement(processNanos, values.get("loadNanos"), values.get("loadMetaspaceBytes"),
+                values.get("firstCallsNanos"), values.get("medianFirstCallNanos"), values.get("metaspaceBytes"));
+    }
+
+    private static InProcessCompiler addSources(Config config, InProcessCompiler compiler) {
+        var options = new StringJoiner(", ");
+        options.add("enableWither = " + config.withers());
+        if (config.bean()) {
+            options.add("beanClassName = \"Bean\"");
+            options.add("getterPrefix = \"get\"");
+        }
+        if (config.staged()) {
+            options.add("builderMode = io.soabase.recordbuilder.core.RecordBuilder.BuilderMode.STANDARD_AND_STAGED");
+        }
+        if (config.collections()) {
+            options.add("useImmutableCollections = true");
+            options.add("addSingleItemCollectionBuilders = true");
+        }
+
+        for (int i = 0; i < config.records(); ++i) {
+            var packageName = packageName(i);
+            var name = "Record" + i;
+            var components = new StringJoiner(", ");
+            var adders = new StringBuilder();
+            var stages = new StringBuilder();
+            for (int c = 0; c < config.components(); ++c) {
+                var type = componentType(config, c);
+                components.add(type + " c" + c);
+                stages.append(".c%d(%s)".formatted(c, defaultValue(type)));
+                switch (type) {
+                case "List<String>" -> adders.append(".addC%d(\"x\")".formatted(c));
+                case "Set<Long>" -> adders.append(".addC%d(1L)".formatted(c));
+                case "Map<String, Integer>" -> adders.append(".addC%d(\"x\", 1)".formatted(c));
+                default -> {
+                }
+                }
+            }
+            var interfaces = new StringJoiner(", ", " implements ", "").setEmptyValue("");
+            var calls = new StringBuilder();
+            calls.append("%s record = %sBuilder.builder().c0(1)%s.build();\n".formatted(name, name, adders));
+            if (config.withers()) {
+                interfaces.add(name + "Builder.With");
+                calls.append("record = record.withC0(2);\n");
+                calls.append("record = %sBuilder.from(record).withC0(3);\n".formatted(name));
+            }
+            if (config.bean()) {
+                interfaces.add(name + "Builder.Bean");
+                calls.append("record = (record.getC0() == 0) ? record : record;\n");
+            }
+            if (config.staged()) {
+                calls.append("record = %sBuilder.stagedBuilder()%s.build();\n".formatted(name, stages));
+            }
+
+            compiler.addSource(packageName + "." + name, """
+                    package %s;
+
+                    import java.util.*;
+
+                    @io.soabase.recordbuilder.core.RecordBuilder
+                    @io.soabase.recordbuilder.core.RecordBuilder.Options(%s)
+                    public record %s(%s)%s {
+                        static Object firstCall() {
+                            %s
+                            return record;
+                        }
+                    }
+                    """.formatted(packageName, options, name, components, interfaces, calls));
+        }
+
+        // a dispatcher per package so that the first calls aren't reflective
+        var packageCases = new StringBuilder();
+        for (int i = 0; i < config.records(); i += RECORDS_PER_PACKAGE) {
+            var packageName = packageName(i);
+            var cases = new StringBuilder();
+            for (int r = i; r < Math.min(config.records(), i + RECORDS_PER_PACKAGE); ++r) {
+                cases.append("case %d -> Record%d.firstCall();\n".formatted(r, r));
+            }
+            compiler.addSource(packageName + "." + CALLS_CLASS, """
+                    package %s;
+
+                    public class %s {
+                        public static Object call(int index) {
+                            return switch (index) {
+                            %s
+                            default -> throw new IllegalArgumentException();
+                            };
+                        }
+                    }
+                    """.formatted(packageName, CALLS_CLASS, cases));
+            packageCases.append(
+                    "case %d -> %s.%s.call(index);\n".formatted(i / RECORDS_PER_PACKAGE, packageName, CALLS_CLASS));
+        }
+
+        compiler.addSource(MAIN_CLASS, """
+                package %s;
+
+                import java.lang.management.ManagementFactory;
+                import java.lang.management.MemoryPoolMXBean;
+                import java.nio.file.Files;
+                import java.nio.file.Path;
+                import java.util.Arrays;
+                import java.util.List;
+
+                public class StartupMain {
+                    public static void main(String[] args) throws Exception {
+                        List<String> classNames = Files.readAllLines(Path.of(args[0]));
+                        int records = Integer.parseInt(args[1]);
+                        MemoryPoolMXBean metaspace = ManagementFactory.getMemoryPoolMXBeans().stream()
+                                .filter(pool -> pool.getName().equals("Metaspace")).findFirst().orElseThrow();
+                        ClassLoader classLoader = StartupMain.class.getClassLoader();
+
+                        long metaspaceStart = metaspace.getUsage().getUsed();
+                        long start = System.nanoTime();
+                        for (String className : classNames) {
+                            Class.forName(className, false, classLoader);
+                        }
+                        long loadNanos = System.nanoTime() - start;
+                        long loadMetaspaceBytes = metaspace.getUsage().getUsed() - metaspaceStart;
+
+                        for (int i = 0; i < records; i += %d) {
+                            Class.forName("%s.p" + (i / %d) + ".%s", true, classLoader);
+                        }
+                        long[] firstCallNanos = new long[records];
+                        for (int i = 0; i < records; ++i) {
+                            long callStart = System.nanoTime();
+                            Object result = call(i);
+                            firstCallNanos[i] = System.nanoTime() - callStart;
+                            if (result == null) {
+                                throw new IllegalStateException();
+                            }
+                        }
+                        long firstCallsNanos = Arrays.stream(firstCallNanos).sum();
+                        Arrays.sort(firstCallNanos);
+
+                        System.out.println("%sloadNanos=" + loadNanos + " loadMetaspaceBytes=" + loadMetaspaceBytes
+                                + " firstCallsNanos=" + firstCallsNanos + " medianFirstCallNanos="
+                                + firstCallNanos[records / 2] + " metaspaceBytes=" + metaspace.getUsage().getUsed());
+                    }
+
+                    private static Object call(int index) {
+                        return switch (index / %d) {
+                        %s
+                        default -> throw new IllegalArgumentException();
+                        };
+                    }
+                }
+                """.formatted(PACKAGE, RECORDS_PER_PACKAGE, PACKAGE, RECORDS_PER_PACKAGE, CALLS_CLASS, RESULT_PREFIX,
+                RECORDS_PER_PACKAGE, packageCases));
+        return compiler;
+    }
+
+    private static String componentType(Config config, int index) {
+        if (index == 0) {
+            // the first calls set c0
+            return "int";
+        }
+        if (config.collections() && ((index % 8) >= 5)) {
+            return switch (index % 8) {
+            case 5 -> "List<String>";
+            case 6 -> "Set<Long>";
+            default -> "Map<String, Integer>";
+            };
+        }
+        return switch (index % 5) {
+        case 1 -> "String";
+        case 2 -> "long";
+        case 3 -> "Optional<String>";
+        default -> "double";
+        };
+    }
+
+    private static String defaultValue(String type) {
+        return switch (type) {
+        case "int" -> "0";
+        case "String" -> "\"\"";
+        case "long" -> "0L";
+        case "Optional<String>" -> "Optional.empty()";
+        case "double" -> "0.0";
+        case "List<String>" -> "List.of()";
+        case "Set<Long>" -> "Set.of()";
+        default -> "Map.of()";
+        };
+    }
+
+    private static String packageName(int recordIndex) {
+        return PACKAGE + ".p" + (recordIndex / RECORDS_PER_PACKAGE);
+    }
+
+    // i.e. "bench/p0/Record0Builder.class" or "bench/p0/Record0Builder$With.class"
+    private static boolean isBuilderClassFile(String path) {
+        var name = path.substring(path.lastIndexOf('/') + 1, path.length() - ".class".length());
+        int dollar = name.indexOf('$');
+        return ((dollar < 0) ? name : name.substring(0, dollar)).endsWith("Builder");
+    }
+
+    private static String binaryName(String path) {
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    private static Path location(Class<?> clazz) {
+        try {
+            return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // AppCDS only archives classes loaded from jars so class directories are jarred
+    private static String jar(Path path, Path jar) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return path.toString();
+        }
+        try (OutputStream out = Files.newOutputStream(jar); var jarOut = new JarOutputStream(out);
+                Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                jarOut.putNextEntry(new JarEntry(path.relativize(file).toString().replace('\\', '/')));
+                jarOut.write(Files.readAllBytes(file));
+                jarOut.closeEntry();
+            }
+        }
+        return jar.toString();
+    }
+}
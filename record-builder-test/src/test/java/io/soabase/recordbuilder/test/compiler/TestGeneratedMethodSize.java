@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestGeneratedMethodSize {
+    // a record's canonical constructor can't have more than 255 parameter slots so this is close to the widest
+    // possible record
+    private static final int COMPONENT_COUNT = 250;
+
+    // HotSpot's default HugeMethodLimit - larger methods are never JIT compiled
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private record MethodSize(String className, String methodName, int codeLength) {
+    }
+
+    /**
+     * Compiles a maximally wide record with most per-component options enabled and checks that every method in the
+     * generated builder is small enough to be JIT compiled
+     */
+    @Test
+    void testGeneratedMethodsAreJitCompilable(@TempDir Path directory) {
+        var compiler = new InProcessCompiler(directory).addSource("test.wide.Wide", wideRecordSource());
+        var result = compiler.compile();
+        assertTrue(result.success(), result::errors);
+
+        List<MethodSize> methodSizes = new ArrayList<>();
+        compiler.classFiles().forEach((path, bytes) -> {
+            if (path.contains("WideBuilder")) {
+                methodSizes.addAll(methodSizes(path, bytes));
+            }
+        });
+        assertThat(methodSizes).isNotEmpty();
+        assertThat(methodSizes).allSatisfy(methodSize -> assertThat(methodSize.codeLength())
+                .as("%s.%s", methodSize.className(), methodSize.methodName()).isLessThan(HUGE_METHOD_LIMIT));
+    }
+
+    @Test
+    void testCompactWithersAreLinear(@TempDir Path directory) {
+        int componentCount = 100;
+        int standardSize = withClassCodeLength(directory.resolve("standard"), componentCount, 0);
+        int compactSize = withClassCodeLength(directory.resolve("compact"), componentCount, 1);
+        int compactHalfSize = withClassCodeLength(directory.resolve("compactHalf"), componentCount / 2, 1);
+
+        // standard withers grow quadratically, compact withers linearly
+        assertThat(compactSize).isLessThan(standardSize / 4);
+        assertThat(compactSize).isLessThan(compactHalfSize * 3);
+    }
+
+    private static int withClassCodeLength(Path directory, int componentCount, int compactWithersThreshold) {
+        String components = IntStream.range(0, componentCount)
+                .mapToObj(i -> ((i % 2) == 0) ? "String s" + i : "int i" + i).collect(Collectors.joining(", "));
+        String source = """
+                package test.wide;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(compactWithersThreshold = %d)
+                public record Wide(%s) implements WideBuilder.With {}
+                """.formatted(compactWithersThreshold, components);
+        var compiler = new InProcessCompiler(directory).addSource("test.wide.Wide", source);
+        var result = compiler.compile();
+        assertTrue(result.success(), result::errors);
+        String path = "test/wide/WideBuilder$With.class";
+        return methodSizes(path, compiler.classFiles().get(path)).stream().mapToInt(MethodSize::codeLength).sum();
+    }
+
+    private static String wideRecordSource() {
+        String components = IntStream.range(0, COMPONENT_COUNT).mapToObj(i -> switch (i % 4) {
+        case 0 -> "String s" + i;
+        case 1 -> "int i" + i;
+        case 2 -> "java.util.List<String> l" + i;
+        default -> "java.util.Map<String, Long> m" + i;
+        }).collect(Collectors.joining(",\n        "));
+        return """
+                package test.wide;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(addSingleItemCollectionBuilders = true, useImmutableCollections = true,
+                        addFunctionalMethodsToWith = true, interpretNotNulls = true, defaultNotNull = true,
+                        onceOnlyAssignment = true, builderMode = RecordBuilder.BuilderMode.STANDARD_AND_STAGED,
+                        addStaticWithers = true, addComparator = true, addHashedKey = true, enableGetters = true)
+                public record Wide(
+                        %s) implements WideBuilder.With {}
+                """.formatted(components);
+    }
+
+    /**
+     * Minimal class file reader that returns the byte code length of each method
+     */
+    private static List<MethodSize> methodSizes(String className, byte[] classFile) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile))) {
+            in.readInt(); // magic
+            in.readUnsignedShort(); // minor
+            in.readUnsignedShort(); // major
+            int constantPoolCount = in.readUnsignedShort();
+            String[] utf8 = new String[constantPoolCount];
+            for (int index = 1; index < constantPoolCount; ++index) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                case 1 -> utf8[index] = in.readUTF();
+                case 7, 8, 16, 19, 20 -> in.skipBytes(2);
+                case 15 -> in.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8);
+                    ++index; // longs and doubles take two slots
+                }
+                default -> throw new IllegalStateException("Unknown constant pool tag: " + tag);
+                }
+            }
+            in.skipBytes(6); // access flags, this class, super class
+            in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+            int fieldCount = in.readUnsignedShort();
+            for (int field = 0; field < fieldCount; ++field) {
+                in.skipBytes(6);
+                skipAttributes(in);
+            }
+
+            List<MethodSize> methodSizes = new ArrayList<>();
+            int methodCount = in.readUnsignedShort();
+            for (int method = 0; method < methodCount; ++method) {
+                in.skipBytes(2); // access flags
+                String name = utf8[in.readUnsignedShort()];
+                in.skipBytes(2); // descriptor
+                int attributeCount = in.readUnsignedShort();
+                for (int attribute = 0; attribute < attributeCount; ++attribute) {
+                    String attributeName = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if (attributeName.equals("Code")) {
+                        in.skipBytes(4); // max stack, max locals
+                        int codeLength = in.readInt();
+                        in.skipBytes(length - 8);
+                        methodSizes.add(new MethodSize(className, name, codeLength));
+                    } else {
+                        in.skipBytes(length);
+                    }
+                }
+            }
+            return methodSizes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int attribute = 0; attribute < attributeCount; ++attribute) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+}
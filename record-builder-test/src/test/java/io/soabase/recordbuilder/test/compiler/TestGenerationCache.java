@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestGenerationCache {
+    private static final String MARKER = "// cached by test";
+
+    @Test
+    void testCacheHitAndInvalidation(@TempDir Path directory) throws IOException {
+        var compiler = new InProcessCompiler(directory).addSource("test.cache.Person", personSource(""));
+        var result = compiler.compile("-AgenerationCache=true");
+        assertTrue(result.success(), result::errors);
+
+        Path cacheEntry = compiler.classesDirectory()
+                .resolve("META-INF/record-builder/cache/test.cache.PersonBuilder.txt");
+        assertThat(cacheEntry).exists();
+
+        // mark the cached source - if the next compile uses the cache the marker shows up in the generated builder
+        Files.writeString(cacheEntry, Files.readString(cacheEntry) + MARKER + "\n");
+        result = compiler.compile("-AgenerationCache=true");
+        assertTrue(result.success(), result::errors);
+        assertThat(compiler.generatedSources().get("test/cache/PersonBuilder.java")).contains(MARKER);
+
+        // different options must not use the cached source
+        result = compiler.compile("-AgenerationCache=true", "-AsetterPrefix=set");
+        assertTrue(result.success(), result::errors);
+        assertThat(compiler.generatedSources().get("test/cache/PersonBuilder.java")).doesNotContain(MARKER)
+                .contains("setName(");
+
+        // nor must a changed record
+        compiler.addSource("test.cache.Person", personSource(", int age"));
+        Files.writeString(cacheEntry, Files.readString(cacheEntry) + MARKER + "\n");
+        result = compiler.compile("-AgenerationCache=true", "-AsetterPrefix=set");
+        assertTrue(result.success(), result::errors);
+        assertThat(compiler.generatedSources().get("test/cache/PersonBuilder.java")).doesNotContain(MARKER)
+                .contains("setAge(");
+    }
+
+    @Test
+    void testReferencedTypeInvalidation(@TempDir Path directory) throws IOException {
+        var compiler = new InProcessCompiler(directory).addSource("test.cache.Holder", holderSource())
+                .addSource("test.cache.Value", valueSource(false));
+        var result = compiler.compile("-AgenerationCache=true");
+        assertTrue(result.success(), result::errors);
+        assertThat(compiler.generatedSources().get("test/cache/HolderBuilder.java"))
+                .doesNotContain("a.value().compareTo");
+
+        Path cacheEntry = compiler.classesDirectory()
+                .resolve("META-INF/record-builder/cache/test.cache.HolderBuilder.txt");
+        Files.writeString(cacheEntry, Files.readString(cacheEntry) + MARKER + "\n");
+
+        // only the referenced type changes - it's now Comparable so the comparator must compare it
+        compiler.addSource("test.cache.Value", valueSource(true));
+        result = compiler.compile("-AgenerationCache=true");
+        assertTrue(result.success(), result::errors);
+        assertThat(compiler.generatedSources().get("test/cache/HolderBuilder.java")).doesNotContain(MARKER)
+                .contains("a.value().compareTo");
+    }
+
+    @Test
+    void testDiagnosticsAreReportedOnCacheHit(@TempDir Path directory) throws IOException {
+        var compiler = new InProcessCompiler(directory).addSource("test.cache.Unsortable", """
+                package test.cache;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(addComparator = true)
+                public record Unsortable(Object value) {}
+                """);
+        var result = compiler.compile("-AgenerationCache=true");
+        assertThat(result.success()).isFalse();
+        assertThat(result.errors()).contains("addComparator is set but the record has no comparable components");
+
+        Path cacheEntry = compiler.classesDirectory()
+                .resolve("META-INF/record-builder/cache/test.cache.UnsortableBuilder.txt");
+        assertThat(cacheEntry).exists();
+        Files.writeString(cacheEntry, Files.readString(cacheEntry) + MARKER + "\n");
+
+        // the cached source is used but the error of the original generation must be reported again
+        result = compiler.compile("-AgenerationCache=true");
+        assertThat(compiler.generatedSources().get("test/cache/UnsortableBuilder.java")).contains(MARKER);
+        assertThat(result.success()).isFalse();
+        assertThat(result.errors()).contains("addComparator is set but the record has no comparable components");
+    }
+
+    private static String holderSource() {
+        return """
+                package test.cache;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(addComparator = true)
+                public record Holder(int count, Value value) {}
+                """;
+    }
+
+    private static String valueSource(boolean comparable) {
+        if (!comparable) {
+            return """
+                    package test.cache;
+
+                    public record Value(String name) {}
+                    """;
+        }
+        return """
+                package test.cache;
+
+                public record Value(String name) implements Comparable<Value> {
+                    public int compareTo(Value other) {
+                        return name.compareTo(other.name);
+                    }
+                }
+                """;
+    }
+
+    private static String personSource(String extraComponents) {
+        return """
+                package test.cache;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+                import java.util.List;
+
+                @RecordBuilder
+                public record Person(String name, List<String> nicknames%s) {}
+                """.formatted(extraComponents);
+    }
+}
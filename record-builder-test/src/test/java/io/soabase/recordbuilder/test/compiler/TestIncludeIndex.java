@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestIncludeIndex {
+    @Test
+    void testIncludeUsesIndex(@TempDir Path libraryDirectory, @TempDir Path applicationDirectory,
+            @TempDir Path scanningDirectory) throws IOException {
+        var library = new InProcessCompiler(libraryDirectory)
+                .addSource("test.lib.First", "package test.lib; public record First(String s) {}")
+                .addSource("test.lib.Second", "package test.lib; public record Second(int i) {}")
+                .addSource("test.lib.NotARecord", "package test.lib; public class NotARecord {}");
+        var result = library.compile("-AincludeIndex=true");
+        assertTrue(result.success(), result::errors);
+
+        Path index = library.classesDirectory().resolve("META-INF/record-builder/include-index/test.lib.txt");
+        assertThat(Files.readAllLines(index)).containsExactlyInAnyOrder("test.lib.First", "test.lib.Second");
+
+        // the index is authoritative - prove that it's used by removing a record from it
+        Files.writeString(index, "test.lib.First\n");
+        var application = addApplication(new InProcessCompiler(applicationDirectory), library);
+        result = application.compile();
+        assertTrue(result.success(), result::errors);
+        assertThat(application.generatedSources()).containsOnlyKeys("test/app/FirstBuilder.java");
+
+        // without an index the package is scanned
+        Files.delete(index);
+        var scanning = addApplication(new InProcessCompiler(scanningDirectory), library);
+        result = scanning.compile();
+        assertTrue(result.success(), result::errors);
+        assertThat(scanning.generatedSources()).containsOnlyKeys("test/app/FirstBuilder.java",
+                "test/app/SecondBuilder.java");
+    }
+
+    private static InProcessCompiler addApplication(InProcessCompiler compiler, InProcessCompiler library) {
+        return compiler.addClassPath(library.classesDirectory()).addSource("test.app.Includes", """
+                package test.app;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder.Include(packages = "test.lib")
+                public class Includes {}
+                """);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestParallelGeneration {
+    private static final int RECORD_COUNT = 25;
+
+    @Test
+    void testParallelMatchesSerial(@TempDir Path serialDirectory, @TempDir Path parallelDirectory) {
+        var serialCompiler = addSources(new InProcessCompiler(serialDirectory));
+        var serialResult = serialCompiler.compile();
+        assertTrue(serialResult.success(), serialResult::errors);
+
+        var parallelCompiler = addSources(new InProcessCompiler(parallelDirectory));
+        var parallelResult = parallelCompiler.compile("-AparallelGeneration=true");
+        assertTrue(parallelResult.success(), parallelResult::errors);
+
+        Map<String, String> serialSources = serialCompiler.generatedSources();
+        assertEquals(RECORD_COUNT * 2, serialSources.size());
+        assertEquals(serialSources, parallelCompiler.generatedSources());
+    }
+
+    private static InProcessCompiler addSources(InProcessCompiler compiler) {
+        for (int i = 0; i < RECORD_COUNT; ++i) {
+            compiler.addSource("test.parallel.Record" + i, """
+                    package test.parallel;
+
+                    import io.soabase.recordbuilder.core.RecordBuilder;
+                    import java.util.List;
+                    import java.util.Map;
+
+                    @RecordBuilder
+                    @RecordBuilder.Options(addSingleItemCollectionBuilders = true, useImmutableCollections = true)
+                    public record Record%1$d(String name, int age, List<String> tags, Map<String, Integer> counts)
+                            implements Record%1$dBuilder.With {}
+                    """.formatted(i));
+            compiler.addSource("test.parallel.Interface" + i, """
+                    package test.parallel;
+
+                    import io.soabase.recordbuilder.core.RecordInterface;
+
+                    @RecordInterface(addRecordBuilder = false)
+                    public interface Interface%d {
+                        String name();
+
+                        long value();
+                    }
+                    """.formatted(i));
+        }
+        return compiler;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestProcessingCache {
+    private static final Pattern ANNOTATION_TARGETS = Pattern
+            .compile("annotation targets \\(hits=(\\d+), misses=(\\d+)\\)");
+
+    @Test
+    void testAnnotationTargetsAreCached(@TempDir Path directory) {
+        var compiler = new InProcessCompiler(directory).addSource("test.memo.NotNull", """
+                package test.memo;
+
+                import java.lang.annotation.*;
+
+                @Target({ElementType.TYPE_USE, ElementType.METHOD, ElementType.PARAMETER})
+                @Retention(RetentionPolicy.RUNTIME)
+                public @interface NotNull {}
+                """);
+        for (int i = 0; i < 5; ++i) {
+            compiler.addSource("test.memo.Annotated" + i, """
+                    package test.memo;
+
+                    import io.soabase.recordbuilder.core.RecordBuilder;
+
+                    @RecordBuilder
+                    public record Annotated%d(@NotNull String a, @NotNull String b, @NotNull Integer c) {}
+                    """.formatted(i));
+        }
+        var result = compiler.compile("-AcacheStatistics=true");
+        assertTrue(result.success(), result::errors);
+
+        var statistics = result.diagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE)
+                .map(diagnostic -> ANNOTATION_TARGETS.matcher(diagnostic.getMessage(null))).filter(Matcher::find)
+                .findFirst();
+        assertThat(statistics).isPresent();
+        // only the one annotation type is resolved, every other lookup is a hit
+        assertThat(Long.parseLong(statistics.get().group(2))).isEqualTo(1);
+        assertThat(Long.parseLong(statistics.get().group(1))).isGreaterThan(5 * 3);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestProcessorBenchmark {
+    @Test
+    void testHarness(@TempDir Path directory) {
+        // all scenarios with a tiny source tree so that the harness itself doesn't rot
+        var configs = List.of(new ProcessorBenchmark.Config(3, 9, false, false, true, true, 0, 1, List.of()),
+                new ProcessorBenchmark.Config(3, 4, true, false, false, false, 0, 1, List.of()),
+                new ProcessorBenchmark.Config(3, 4, false, true, false, true, 0, 1, List.of()));
+        for (int i = 0; i < configs.size(); ++i) {
+            var report = ProcessorBenchmark.run(configs.get(i), directory.resolve("config" + i));
+            assertEquals(1, report.withProcessor().size());
+            assertEquals(3, report.withProcessor().get(0).generatedSources());
+            assertEquals(0, report.withoutProcessor().get(0).generatedSources());
+            assertTrue(report.withProcessor().get(0).processorNanos() > 0);
+            assertTrue(report.format().contains("with processor"));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "recordbuilder.benchmark", matches = "true")
+    void benchmark(@TempDir Path directory) {
+        var report = ProcessorBenchmark.run(ProcessorBenchmark.Config.fromSystemProperties(), directory);
+        System.out.println(report.format());
+    }
+}
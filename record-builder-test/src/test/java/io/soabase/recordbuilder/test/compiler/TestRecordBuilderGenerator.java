@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import io.soabase.recordbuilder.generator.GeneratorArguments;
+import io.soabase.recordbuilder.generator.RecordBuilderGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestRecordBuilderGenerator {
+    @Test
+    void testGenerateFromClassFiles(@TempDir Path directory) throws IOException {
+        Path outputDirectory = directory.resolve("output");
+        var library = new InProcessCompiler(directory.resolve("library"))
+                .addSource("test.one.Point", "package test.one; public record Point(int x, int y) {}")
+                .addSource("test.one.Line", "package test.one; public record Line(Point from, Point to) {}")
+                .addSource("test.two.Hidden", "package test.two; record Hidden(java.util.List<String> names) {}")
+                .addSource("test.two.NotARecord", "package test.two; public class NotARecord {}");
+        var result = library.compile("-proc:none");
+        assertTrue(result.success(), result::errors);
+
+        var arguments = GeneratorArguments.parse("--output", outputDirectory.toString(), "--scan",
+                library.classesDirectory().toString(), "--threads", "2", "--batch-size", "1",
+                "-AuseImmutableCollections=true");
+        var generated = new RecordBuilderGenerator(arguments).generate();
+        assertTrue(generated.isSuccess(), () -> String.join("\n", generated.errors()));
+        assertEquals(2, generated.batches());
+        assertThat(sources(outputDirectory)).containsExactlyInAnyOrder("test/one/PointBuilder.java",
+                "test/one/LineBuilder.java", "test/two/HiddenBuilder.java");
+        assertThat(Files.readString(outputDirectory.resolve("test/two/HiddenBuilder.java"))).contains("List.copyOf");
+
+        // the generated builders compile against the library
+        var verify = new InProcessCompiler(directory.resolve("verify")).addClassPath(library.classesDirectory());
+        for (var source : sources(outputDirectory)) {
+            verify.addSource(source.replace(".java", "").replace('/', '.'),
+                    Files.readString(outputDirectory.resolve(source)));
+        }
+        result = verify.compile("-proc:none");
+        assertTrue(result.success(), result::errors);
+    }
+
+    @Test
+    void testGenerateNamedClasses(@TempDir Path directory) throws IOException {
+        Path outputDirectory = directory.resolve("output");
+        var library = new InProcessCompiler(directory.resolve("library"))
+                .addSource("test.one.Point", "package test.one; public record Point(int x, int y) {}")
+                .addSource("test.one.Other", "package test.one; public record Other(String s) {}");
+        var result = library.compile("-proc:none");
+        assertTrue(result.success(), result::errors);
+
+        var arguments = GeneratorArguments.parse("--output", outputDirectory.toString(), "--classpath",
+                library.classesDirectory().toString(), "-Asuffix=Maker", "test.one.Point");
+        var generated = new RecordBuilderGenerator(arguments).generate();
+        assertTrue(generated.isSuccess(), () -> String.join("\n", generated.errors()));
+        assertThat(sources(outputDirectory)).containsExactly("test/one/PointMaker.java");
+
+        arguments = GeneratorArguments.parse("--output", outputDirectory.toString(), "test.one.Missing");
+        assertThat(new RecordBuilderGenerator(arguments).generate().errors()).isNotEmpty();
+    }
+
+    @Test
+    void testArgumentValidation() {
+        assertThrows(IllegalArgumentException.class, () -> GeneratorArguments.parse("test.one.Point"));
+        assertThrows(IllegalArgumentException.class, () -> GeneratorArguments.parse("--output", "out"));
+        assertThrows(IllegalArgumentException.class,
+                () -> GeneratorArguments.parse("--output", "out", "--threads", "x", "test.one.Point"));
+        assertThrows(IllegalArgumentException.class,
+                () -> GeneratorArguments.parse("--output", "out", "--unknown", "test.one.Point"));
+    }
+
+    private static List<String> sources(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(path -> path.toString().endsWith(".java"))
+                    .map(path -> directory.relativize(path).toString()).toList();
+        }
+    }
+}
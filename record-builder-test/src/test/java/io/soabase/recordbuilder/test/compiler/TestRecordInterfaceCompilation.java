@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TestRecordInterfaceCompilation {
+    @Test
+    void testEmptyInterfaceWithCachedHashCode(@TempDir Path directory) {
+        // the usual error is reported - the cached hash code must not assume a first component
+        var compiler = new InProcessCompiler(directory).addSource("test.iface.Empty", """
+                package test.iface;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+                import io.soabase.recordbuilder.core.RecordInterface;
+
+                @RecordInterface
+                @RecordBuilder.Options(cacheHashCode = true)
+                public interface Empty {}
+                """);
+        var result = compiler.compile();
+        assertFalse(result.success());
+        assertThat(result.errors()).contains("Annotated interface has no component methods")
+                .doesNotContain("IndexOutOfBoundsException");
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestStartupBenchmark {
+    @Test
+    @EnabledIfSystemProperty(named = "recordbuilder.startup", matches = "true")
+    void testHarness(@TempDir Path directory) {
+        // a tiny source tree so that the harness itself doesn't rot. Spawns several JVMs and dumps an AppCDS
+        // archive so, like the benchmark, it only runs with -Drecordbuilder.startup=true
+        var config = new StartupBenchmark.Config(3, 9, true, true, true, true, true, 1, List.of());
+        var report = StartupBenchmark.run(config, directory);
+        assertEquals(1, report.measurements().size());
+        assertEquals(1, report.cdsMeasurements().size());
+        assertTrue(report.builderClasses() > 3);
+        assertTrue(report.measurements().get(0).loadNanos() > 0);
+        assertTrue(report.measurements().get(0).firstCallsNanos() > 0);
+        assertTrue(report.format().contains("AppCDS"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "recordbuilder.startup", matches = "true")
+    void benchmark(@TempDir Path directory) {
+        var report = StartupBenchmark.run(StartupBenchmark.Config.fromSystemProperties(), directory);
+        System.out.println(report.format());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.compiler;
+
+import com.sun.management.ThreadMXBean;
+import io.soabase.recordbuilder.processor.RecordBuilderProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestWideRecordGeneration {
+    private static final int COMPONENT_COUNT = 500;
+
+    @Test
+    void testProcessorAllocationForWideRecord(@TempDir Path directory) {
+        // the first compilation warms up the processor and javac so that one-time costs aren't measured
+        generate(directory.resolve("warmup"), COMPONENT_COUNT / 2);
+        var half = generate(directory.resolve("half"), COMPONENT_COUNT / 2);
+        var full = generate(directory.resolve("full"), COMPONENT_COUNT);
+        assertThat(full.builderSourceLength()).isGreaterThan(COMPONENT_COUNT * 500);
+
+        // allocation must be linear in the size of the generated source (which is itself superlinear in the number
+        // of components as each wither passes every component) - i.e. the same per generated char at both widths
+        assertThat(full.bytesPerChar()).isLessThan(1.25 * half.bytesPerChar());
+
+        // about 190 bytes per generated char are allocated at the time of writing (mostly JavaPoet's CodeWriter)
+        assertThat(full.bytesPerChar()).isLessThan(250);
+    }
+
+    @Test
+    void testGroupedStagesForWideRecord(@TempDir Path directory) {
+        assertThat(stageInterfaces(directory.resolve("ungrouped"), 1)).hasSize(121);
+
+        // 120 required components in groups of 12 - 10 grouped stages plus the final stage
+        var stageInterfaces = stageInterfaces(directory.resolve("grouped"), 12);
+        assertThat(stageInterfaces).hasSize(11).contains("test/wide/WideStagedBuilder$WideStagedBuilderStage.class",
+                "test/wide/WideStagedBuilder$S0AndS1AndS2AndI3AndS4AndS5AndS6AndI7AndS8AndS9AndS10AndI11Stage.class");
+    }
+
+    private static List<String> stageInterfaces(Path directory, int groupSize) {
+        String components = IntStream.range(0, 120).mapToObj(i -> ((i % 4) == 3) ? "int i" + i : "String s" + i)
+                .collect(Collectors.joining(",\n        "));
+        var compiler = new InProcessCompiler(directory).addSource("test.wide.WideStaged", """
+                package test.wide;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(builderMode = RecordBuilder.BuilderMode.STAGED, stagedBuilderGroupSize = %d)
+                public record WideStaged(
+                        %s) {}
+                """.formatted(groupSize, components));
+        var result = compiler.compile();
+        assertTrue(result.success(), result::errors);
+        return compiler.classFiles().keySet().stream()
+                .filter(name -> name.startsWith("test/wide/WideStagedBuilder$") && name.endsWith("Stage.class"))
+                .toList();
+    }
+
+    private record Generation(long allocatedBytes, int builderSourceLength) {
+        double bytesPerChar() {
+            return (double) allocatedBytes / builderSourceLength;
+        }
+    }
+
+    private static Generation generate(Path directory, int componentCount) {
+        var processor = new AllocationMeasuringProcessor(new RecordBuilderProcessor());
+        var compiler = new InProcessCompiler(directory).withProcessor(() -> processor).addSource("test.wide.Wide",
+                wideRecordSource(componentCount));
+
+        // -proc:only as a record can't have more than 255 components once compiled to byte code
+        var result = compiler.compile("-proc:only");
+        assertTrue(result.success(), result::errors);
+        return new Generation(processor.allocatedBytes(),
+                compiler.generatedSources().get("test/wide/WideBuilder.java").length());
+    }
+
+    private static String wideRecordSource(int componentCount) {
+        String components = IntStream.range(0, componentCount).mapToObj(i -> switch (i % 4) {
+        case 0 -> "String s" + i;
+        case 1 -> "int i" + i;
+        case 2 -> "java.util.List<String> l" + i;
+        default -> "java.util.Map<String, Long> m" + i;
+        }).collect(Collectors.joining(",\n        "));
+        return """
+                package test.wide;
+
+                import io.soabase.recordbuilder.core.RecordBuilder;
+
+                @RecordBuilder
+                @RecordBuilder.Options(addSingleItemCollectionBuilders = true, useImmutableCollections = true)
+                public record Wide(
+                        %s) implements WideBuilder.With {}
+                """.formatted(components);
+    }
+
+    private static class AllocationMeasuringProcessor implements Processor {
+        private final Processor processor;
+        private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long allocatedBytes;
+
+        private AllocationMeasuringProcessor(Processor processor) {
+            this.processor = processor;
+        }
+
+        long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return processor.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return processor.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return processor.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            processor.init(processingEnv);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = threadMXBean.getCurrentThreadAllocatedBytes();
+            try {
+                return processor.process(annotations, roundEnv);
+            } finally {
+                allocatedBytes += threadMXBean.getCurrentThreadAllocatedBytes() - start;
+            }
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                ExecutableElement member, String userText) {
+            return processor.getCompletions(element, annotation, member, userText);
+        }
+    }
+}
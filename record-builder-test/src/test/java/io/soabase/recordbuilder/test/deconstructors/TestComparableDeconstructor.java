@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.deconstructors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestComparableDeconstructor {
+    @Test
+    public void testComparator() {
+        var a = ComparableSourceDao.from(new ComparableSource(1, "b"));
+        var b = ComparableSourceDao.from(new ComparableSource(1, "c"));
+        var c = ComparableSourceDao.from(new ComparableSource(2, "a"));
+
+        assertThat(ComparableSourceDaoBuilder.compare(a, b)).isNegative();
+        assertThat(ComparableSourceDaoBuilder.compare(c, b)).isPositive();
+        assertThat(ComparableSourceDaoBuilder.compare(a, ComparableSourceDao.from(new ComparableSource(1, "b"))))
+                .isZero();
+        assertThat(Stream.of(c, b, a).sorted(ComparableSourceDaoBuilder.comparator()).toList())
+                .isEqualTo(List.of(a, b, c));
+    }
+}
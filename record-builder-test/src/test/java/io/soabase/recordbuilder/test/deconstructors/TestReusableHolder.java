@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 The original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.soabase.recordbuilder.test.deconstructors;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestReusableHolder {
+    @Test
+    public void testFrom() {
+        var parent = new ReusableHolder<>(1, 2L, 3.0, "parent", List.of("p"), null);
+        var child = new ReusableHolder<>(10, 20L, 30.5, "child", List.of("a", "b"), parent);
+
+        assertThat(ReusableHolderDao.from(parent))
+                .isEqualTo(new ReusableHolderDao<>(1, 2L, 3.0, "parent", List.of("p"), null));
+        // the parent is deconstructed while the child's holder is in use
+        assertThat(ReusableHolderDao.from(child))
+                .isEqualTo(new ReusableHolderDao<>(10, 20L, 30.5, "child", List.of("a", "b"), "parent"));
+        assertThat(ReusableHolderDao.from(parent))
+                .isEqualTo(new ReusableHolderDao<>(1, 2L, 3.0, "parent", List.of("p"), null));
+    }
+
+    @Test
+    public void testHolderClassName() {
+        assertThat(ReusableHolderDao.class.getDeclaredClasses()).extracting(Class::getSimpleName).contains("_Holder")
+                .doesNotContain("_DeconstructorHolder");
+    }
+
+    @Test
+    public void testOnlyRecordIsAllocated() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        var instance = new ReusableHolder<>(10, 20L, 30.5, "child", List.of("a", "b"), null);
+        int iterations = 100_000;
+        var results = new ReusableHolderDao<?>[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            results[i] = ReusableHolderDao.from(instance); // warm up
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; ++i) {
+            results[i] = ReusableHolderDao.from(instance);
+        }
+        long allocatedPerCall = (threadMXBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        // the record itself is at most 64 bytes - a holder object plus one lambda per component would be far more
+        assertThat(allocatedPerCall).isLessThanOrEqualTo(64);
+        assertThat(results[iterations - 1].name()).isEqualTo("child");
+    }
+}
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class TestStagedBuilder {
     @Test
@@ -33,6 +35,22 @@ public class TestStagedBuilder {
         assertEquals(new SimpleStaged(1, "s", now), obj);
     }
 
+    @Test
+    void testStagesShareOneInstance() {
+        var now = Instant.now();
+        SimpleStagedBuilder.IStage iStage = SimpleStagedBuilder.builder();
+        SimpleStagedBuilder.SStage sStage = iStage.i(1);
+        SimpleStagedBuilder.InstantStage instantStage = sStage.s("s");
+        SimpleStagedBuilder.SimpleStagedBuilderStage finalStage = instantStage.instant(now);
+        assertSame(iStage, sStage);
+        assertSame(iStage, instantStage);
+        assertSame(iStage, finalStage);
+        // the stages hold the values - builder() creates a new builder from them
+        assertNotSame(finalStage.builder(), finalStage.builder());
+        assertEquals(SimpleStagedBuilder.builder(new SimpleStaged(1, "s", now)), finalStage.builder());
+        assertEquals(new SimpleStaged(1, "s", now), finalStage.build());
+    }
+
     @Test
     void testSimpleCombined() {
         var now = Instant.now();
@@ -92,6 +110,26 @@ public class TestStagedBuilder {
         assertEquals(new InitializedStaged(42, "foo"), obj);
     }
 
+    @Test
+    void testGrouped() {
+        var now = Instant.now();
+        GroupedStagedBuilder.IAndSStage stage = GroupedStagedBuilder.stagedBuilder();
+        GroupedStaged obj = stage.iAndS(1, "s").instantAndL(now, 2L).last("last").build();
+        assertEquals(new GroupedStaged(1, "s", Optional.empty(), now, 2L, "last"), obj);
+
+        obj = GroupedStagedBuilder.stagedBuilder().iAndS(1, "s").instantAndL(now, 2L).last("last")
+                .optional(Optional.of("o")).build();
+        assertEquals(new GroupedStaged(1, "s", Optional.of("o"), now, 2L, "last"), obj);
+    }
+
+    @Test
+    void testGroupedStagedSameTypes() {
+        // components of the same type are grouped - the stage names spell out the order of the values
+        GroupedStagedSameTypesBuilder.FirstAndLastStage stage = GroupedStagedSameTypesBuilder.builder();
+        GroupedStagedSameTypes obj = stage.firstAndLast("f", "l").ageAndCount(1, 2).build();
+        assertEquals(new GroupedStagedSameTypes("f", "l", 1, 2), obj);
+    }
+
     @Test
     void testOptionalStagedRequiredOnlyConcreteSetter() {
         OptionalStagedRequiredOnly obj = OptionalStagedRequiredOnlyBuilder.builder().a(1).c("cccc").build();